@@ -30,6 +30,10 @@ public class AddShapeCommand implements Command {
         logger.logAction("UNDO_ADD_SHAPE", shape.toStringRepresentation());
     }
     
+    public Shape getShape() {
+        return shape;
+    }
+    
     @Override
     public String getDescription() {
         return "Ajouter " + shape.getClass().getSimpleName();
@@ -0,0 +1,715 @@
+package command;
+
+import database.ShapeCodec;
+import model.Drawing;
+import model.MappedShapeStore;
+import model.Shape;
+import utils.Logger;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de reprise après incident, en ajout seul
+ * Chaque commande exécutée, annulée ou rétablie devient un enregistrement binaire compact.
+ * Un thread dédié écrit les enregistrements accumulés et les force sur disque par groupe
+ * (un seul fsync par intervalle GROUP_COMMIT_MILLIS). Un point de reprise fige régulièrement
+ * le dessin et l'historique, puis le journal repart de zéro. Au démarrage, recover rejoue
+ * le journal sur le dernier point de reprise; une fermeture normale supprime les deux fichiers.
+ *
+ * Journal: [MAGIC][version][génération long] puis des enregistrements
+ * [longueur int][type][contenu][CRC32 int]; une fin tronquée ou corrompue termine la relecture.
+ * Le point de reprise porte la même génération: un journal d'une autre génération est ignoré.
+ * Un fichier .drw encore projeté n'est pas recopié: le point de reprise garde son chemin,
+ * ses lignes retirées ou modifiées et les formes ajoutées depuis l'ouverture.
+ * Les méthodes publiques s'appellent sur le thread FX.
+ */
+public class CommandJournal implements CommandListener, AutoCloseable {
+    public static final String JOURNAL_FILE = "drawing_app.journal";
+    public static final String CHECKPOINT_FILE = "drawing_app.checkpoint";
+    // Délai maximal avant qu'un enregistrement soit forcé sur disque
+    public static final long GROUP_COMMIT_MILLIS = 20;
+    // Enregistrements entre deux points de reprise
+    public static final int CHECKPOINT_INTERVAL = 10_000;
+
+    private static final int JOURNAL_MAGIC = 0x44524A4C;
+    private static final int CHECKPOINT_MAGIC = 0x44524350;
+    private static final byte FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final int MAX_RECORD_LENGTH = 4096;
+    // Formes par bloc compressé du point de reprise
+    private static final int CHECKPOINT_CHUNK_SHAPES = 4096;
+
+    // Types d'enregistrement
+    private static final byte EXECUTE = 1;
+    private static final byte UNDO = 2;
+    private static final byte REDO = 3;
+    private static final byte IDENTITY = 4;
+
+    // Indicateurs du point de reprise
+    private static final byte PARTIAL = 1;
+    private static final byte MAPPED = 2;
+
+    // Commandes journalisables
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final int COMMAND_SIZE = 1 + 8 + ShapeCodec.MAX_RECORD_SIZE;
+
+    private final Path journalPath;
+    private final Path checkpointPath;
+    private final Drawing drawing;
+    private final CommandManager commandManager;
+    private final Logger logger;
+
+    // Enregistrements pas encore écrits, partagés avec le thread d'écriture (verrou: this)
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    // Un point de reprise est en file: ses enregistrements suivants attendent son écriture
+    private boolean checkpointQueued;
+    private volatile boolean failed;
+
+    private ScheduledExecutorService writer;
+    // Utilisé uniquement par le thread d'écriture
+    private FileChannel channel;
+
+    // État du thread FX
+    private long generation;
+    private int recordsSinceCheckpoint;
+    // Faux si l'historique contient des commandes non journalisables: annuler/rétablir
+    // provoque alors un point de reprise au lieu d'un enregistrement
+    private boolean historyJournaled = true;
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_LENGTH);
+    private final CRC32 crc = new CRC32();
+
+    public CommandJournal(Drawing drawing, CommandManager commandManager) {
+        this(Paths.get(JOURNAL_FILE), Paths.get(CHECKPOINT_FILE), drawing, commandManager);
+    }
+
+    public CommandJournal(Path journalPath, Path checkpointPath, Drawing drawing, CommandManager commandManager) {
+        this.journalPath = journalPath;
+        this.checkpointPath = checkpointPath;
+        this.drawing = drawing;
+        this.commandManager = commandManager;
+        this.logger = Logger.getInstance();
+    }
+
+    /**
+     * Restaure le dernier point de reprise et rejoue le journal, avant open
+     * @return vrai si un dessin non vide ou un historique a été restauré
+     * @throws IOException si le point de reprise est illisible (le dessin n'est pas modifié)
+     */
+    public boolean recover() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return false;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+        if (data.remaining() < HEADER_SIZE + 4) {
+            throw new IOException("Point de reprise tronqué");
+        }
+        crc.reset();
+        crc.update(data.array(), 0, data.limit() - 4);
+        if ((int) crc.getValue() != data.getInt(data.limit() - 4)) {
+            throw new IOException("Point de reprise corrompu");
+        }
+
+        try {
+            generation = readHeader(data, CHECKPOINT_MAGIC);
+            restoreCheckpoint(data);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Point de reprise illisible", e);
+        }
+        int replayed = replayJournal();
+        logger.log("Reprise: " + drawing.getShapeCount() + " formes, " + replayed + " opérations rejouées");
+        return !drawing.isEmpty() || commandManager.canUndo() || commandManager.canRedo();
+    }
+
+    /**
+     * Démarre la journalisation: un premier point de reprise fige l'état courant
+     */
+    public void open() throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "command-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, GROUP_COMMIT_MILLIS, GROUP_COMMIT_MILLIS,
+                TimeUnit.MILLISECONDS);
+        commandManager.addCommandListener(this);
+        checkpoint();
+    }
+
+    /**
+     * Fige le dessin et l'historique; le journal repart de zéro une fois le point écrit
+     * La copie est faite ici, l'écriture sur le thread du journal.
+     */
+    public void checkpoint() {
+        if (writer == null || failed) return;
+
+        String name = drawing.getName();
+        long drawingId = drawing.getId();
+        long lastKey = drawing.getLastKey();
+        // Chargement interrompu: bornes des clés non chargées, sinon null
+        long[] unloaded = drawing.isPartial()
+                ? new long[] {drawing.getUnloadedFromKey(), drawing.getUnloadedToKey()} : null;
+        MappedShapeStore store = drawing.getMappedStore();
+        MappedFile mapped = null;
+        List<Shape> shapes;
+        if (store != null) {
+            Map<Integer, Shape> replaced = store.replacedSnapshot();
+            mapped = new MappedFile(store, replaced.keySet());
+            // Formes remplaçant une ligne du fichier, puis formes ajoutées
+            shapes = new ArrayList<>(replaced.values());
+            shapes.addAll(store.appendedSnapshot());
+        } else {
+            shapes = drawing.frozenSnapshot();
+        }
+        MappedFile file = mapped;
+        List<Command> undo = commandManager.getUndoHistory();
+        List<Command> redo = commandManager.getRedoHistory();
+        historyJournaled = isJournaled(undo) && isJournaled(redo);
+        ByteBuffer history = historyJournaled ? encodeHistory(undo, redo) : encodeHistory(List.of(), List.of());
+
+        long next = ++generation;
+        recordsSinceCheckpoint = 0;
+        ByteBuffer before;
+        synchronized (this) {
+            before = takePending();
+            checkpointQueued = true;
+        }
+        writer.execute(() -> writeCheckpoint(before, next, name, drawingId, lastKey, unloaded, file, shapes,
+                history));
+    }
+
+    /**
+     * Fichier .drw d'un point de reprise: chemin, en-tête vérifié à la reprise et lignes modifiées
+     */
+    private static final class MappedFile {
+        final byte[] path;
+        final int fileCount;
+        final long lastKey;
+        final int[] removedRows;
+        final int[] replacedRows;
+
+        MappedFile(MappedShapeStore store, Collection<Integer> replacedRows) {
+            path = store.getFile().toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+            fileCount = store.getFileShapeCount();
+            lastKey = store.getLastKey();
+            removedRows = store.getRemovedRows();
+            this.replacedRows = replacedRows.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int size() {
+            return 4 + path.length + 4 + 8 + 4 + removedRows.length * 4 + 4 + replacedRows.length * 4;
+        }
+    }
+
+    /**
+     * Note le nom et l'identifiant en base du dessin (après une sauvegarde)
+     */
+    public void recordIdentity() {
+        byte[] name = drawing.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_RECORD_LENGTH - 64) {
+            checkpoint();
+            return;
+        }
+        begin(IDENTITY);
+        record.putInt(name.length);
+        record.put(name);
+        record.putLong(drawing.getId());
+        end();
+    }
+
+    @Override
+    public void commandExecuted(Command command) {
+        if (!isJournaled(command)) {
+            // Commande inconnue du journal: figer directement son effet
+            checkpoint();
+            return;
+        }
+        begin(EXECUTE);
+        putCommand(command, record);
+        end();
+    }
+
+    @Override
+    public void commandUndone(Command command) {
+        if (historyJournaled) {
+            begin(UNDO);
+            end();
+        } else {
+            checkpoint();
+        }
+    }
+
+    @Override
+    public void commandRedone(Command command) {
+        if (historyJournaled) {
+            begin(REDO);
+            end();
+        } else {
+            checkpoint();
+        }
+    }
+
+    @Override
+    public void historyCleared() {
+        checkpoint();
+    }
+
+    /**
+     * Fermeture normale: termine les écritures et supprime le journal, il n'y a rien à reprendre
+     */
+    @Override
+    public void close() {
+        if (writer == null) return;
+        commandManager.removeCommandListener(this);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+            channel.close();
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(checkpointPath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.logError("Fermeture du journal de reprise: " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    // --- Enregistrements (thread FX) ---
+
+    private void begin(byte type) {
+        record.clear();
+        record.putInt(0);
+        record.put(type);
+    }
+
+    private void end() {
+        if (failed) return;
+        int length = record.position() - 4;
+        record.putInt(0, length);
+        crc.reset();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        synchronized (this) {
+            if (pending.remaining() < record.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                        pending.position() + record.remaining()));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.put(record);
+        }
+        if (++recordsSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            checkpoint();
+        }
+    }
+
+    private static boolean isJournaled(Command command) {
+        return command instanceof AddShapeCommand || command instanceof RemoveShapeCommand;
+    }
+
+    private static boolean isJournaled(List<Command> commands) {
+        for (Command command : commands) {
+            if (!isJournaled(command)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * [ADD|REMOVE][clé de la forme][forme]: la clé retrouve la forme dans le dessin à la relecture
+     */
+    private static void putCommand(Command command, ByteBuffer buffer) {
+        Shape shape;
+        if (command instanceof AddShapeCommand) {
+            buffer.put(ADD);
+            shape = ((AddShapeCommand) command).getShape();
+        } else {
+            buffer.put(REMOVE);
+            shape = ((RemoveShapeCommand) command).getShape();
+        }
+        buffer.putLong(shape.getKey());
+        ShapeCodec.writeRecord(shape, buffer);
+    }
+
+    private static ByteBuffer encodeHistory(List<Command> undo, List<Command> redo) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + (undo.size() + redo.size()) * COMMAND_SIZE);
+        buffer.putInt(undo.size());
+        for (Command command : undo) {
+            putCommand(command, buffer);
+        }
+        buffer.putInt(redo.size());
+        for (Command command : redo) {
+            putCommand(command, buffer);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer takePending() {
+        ByteBuffer data = pending.flip();
+        pending = ByteBuffer.allocate(Math.max(4096, data.limit()));
+        return data;
+    }
+
+    // --- Écriture (thread du journal) ---
+
+    private void flush() {
+        if (failed) return;
+        ByteBuffer data;
+        synchronized (this) {
+            if (checkpointQueued || pending.position() == 0) return;
+            data = takePending();
+        }
+        try {
+            writeFully(data);
+            channel.force(false);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeCheckpoint(ByteBuffer before, long next, String name, long drawingId, long lastKey,
+                                 long[] unloaded, MappedFile mapped, List<Shape> shapes,
+                                 ByteBuffer history) {
+        if (failed) return;
+        try {
+            // Les enregistrements d'avant restent valables tant que l'ancien point n'est pas remplacé
+            writeFully(before);
+            channel.force(false);
+
+            Path temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 checksum = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file)));
+                ByteBuffer header = header(CHECKPOINT_MAGIC, next);
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer fields = ByteBuffer.allocate(4 + nameBytes.length + 8 + 8 + 1 + 16
+                        + (mapped != null ? mapped.size() : 0) + 4);
+                fields.putInt(nameBytes.length).put(nameBytes).putLong(drawingId).putLong(lastKey);
+                fields.put((byte) ((unloaded != null ? PARTIAL : 0) | (mapped != null ? MAPPED : 0)));
+                if (unloaded != null) {
+                    fields.putLong(unloaded[0]).putLong(unloaded[1]);
+                }
+                if (mapped != null) {
+                    // [chemin][nombre][dernière clé][lignes retirées][lignes remplacées]
+                    fields.putInt(mapped.path.length).put(mapped.path).putInt(mapped.fileCount).putLong(mapped.lastKey);
+                    fields.putInt(mapped.removedRows.length);
+                    for (int row : mapped.removedRows) {
+                        fields.putInt(row);
+                    }
+                    fields.putInt(mapped.replacedRows.length);
+                    for (int row : mapped.replacedRows) {
+                        fields.putInt(row);
+                    }
+                }
+                fields.putInt(shapes.size());
+                writeChecked(out, checksum, header.array());
+                writeChecked(out, checksum, fields.array(), fields.position());
+                for (int from = 0; from < shapes.size(); from += CHECKPOINT_CHUNK_SHAPES) {
+                    byte[] chunk = ShapeCodec.encodeChunk(shapes, from,
+                            Math.min(from + CHECKPOINT_CHUNK_SHAPES, shapes.size()));
+                    writeChecked(out, checksum, ByteBuffer.allocate(4).putInt(chunk.length).array());
+                    writeChecked(out, checksum, chunk);
+                }
+                writeChecked(out, checksum, history.array(), history.limit());
+                out.writeInt((int) checksum.getValue());
+                out.flush();
+                file.force(true);
+            }
+            Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            // Le journal précédent est contenu dans le point de reprise: repartir de zéro
+            channel.truncate(0);
+            channel.position(0);
+            writeFully(header(JOURNAL_MAGIC, next));
+            ByteBuffer after;
+            synchronized (this) {
+                after = takePending();
+                checkpointQueued = false;
+            }
+            writeFully(after);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private static void writeChecked(DataOutputStream out, CRC32 checksum, byte[] bytes) throws IOException {
+        writeChecked(out, checksum, bytes, bytes.length);
+    }
+
+    private static void writeChecked(DataOutputStream out, CRC32 checksum, byte[] bytes, int length)
+            throws IOException {
+        checksum.update(bytes, 0, length);
+        out.write(bytes, 0, length);
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private static ByteBuffer header(int magic, long generation) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(magic).put(FORMAT_VERSION).putLong(generation);
+        header.flip();
+        return header;
+    }
+
+    private void fail(Exception e) {
+        // Le journal n'est plus fiable: le désactiver plutôt que d'écrire un état incohérent
+        failed = true;
+        logger.logError("Journal de reprise désactivé: " + e.getMessage());
+    }
+
+    // --- Relecture (démarrage) ---
+
+    private static long readHeader(ByteBuffer data, int magic) throws IOException {
+        if (data.getInt() != magic) {
+            throw new IOException("Fichier de reprise inconnu");
+        }
+        byte version = data.get();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Version de reprise non supportée: " + version);
+        }
+        return data.getLong();
+    }
+
+    private void restoreCheckpoint(ByteBuffer data) throws IOException {
+        byte[] nameBytes = new byte[data.getInt()];
+        data.get(nameBytes);
+        long drawingId = data.getLong();
+        long lastKey = data.getLong();
+        byte flags = data.get();
+        long[] unloaded = (flags & PARTIAL) != 0 ? new long[] {data.getLong(), data.getLong()} : null;
+        MappedShapeStore mapped = null;
+        int[] removedRows = null;
+        int[] replacedRows = new int[0];
+        if ((flags & MAPPED) != 0) {
+            byte[] fileBytes = new byte[data.getInt()];
+            data.get(fileBytes);
+            Path file = Paths.get(new String(fileBytes, StandardCharsets.UTF_8));
+            int fileCount = data.getInt();
+            long fileLastKey = data.getLong();
+            removedRows = readRows(data);
+            replacedRows = readRows(data);
+            mapped = MappedShapeStore.open(file);
+            if (mapped.getFileShapeCount() != fileCount || mapped.getLastKey() != fileLastKey) {
+                throw new IOException("Fichier de dessin modifié depuis le point de reprise: " + file);
+            }
+        }
+        int count = data.getInt();
+        if (count < replacedRows.length) {
+            throw new IllegalArgumentException("Formes remplacées manquantes");
+        }
+        List<Shape> shapes = new ArrayList<>(count);
+        while (shapes.size() < count) {
+            byte[] chunk = new byte[data.getInt()];
+            data.get(chunk);
+            ShapeCodec.decodeChunk(chunk, 0, shapes);
+        }
+        ByteBuffer history = data.slice(data.position(), data.limit() - 4 - data.position());
+        List<Command> undo = new ArrayList<>();
+        List<Command> redo = new ArrayList<>();
+        Map<Long, Shape> byKey = new HashMap<>();
+        for (Shape shape : shapes) {
+            byKey.put(shape.getKey(), shape);
+        }
+        readCommands(history, byKey, undo);
+        readCommands(history, byKey, redo);
+
+        // Le dessin n'est modifié qu'une fois tout le point de reprise lu
+        List<Shape> added = shapes;
+        if (mapped != null) {
+            Map<Integer, Shape> replaced = new TreeMap<>();
+            for (int i = 0; i < replacedRows.length; i++) {
+                replaced.put(replacedRows[i], shapes.get(i));
+            }
+            mapped.restoreOverlay(removedRows, replaced);
+            added = shapes.subList(replacedRows.length, shapes.size());
+            drawing.replaceStore(mapped);
+        } else {
+            drawing.clear();
+        }
+        drawing.setName(new String(nameBytes, StandardCharsets.UTF_8));
+        drawing.setId(drawingId);
+        drawing.addSavedShapes(added);
+        drawing.reserveKeys(lastKey);
+        if (unloaded != null) {
+            drawing.markPartial(unloaded[0], unloaded[1]);
+        }
+        // Seules les formes ajoutées au fichier peuvent être désignées par l'historique
+        rebindHistory(undo, redo, drawing.getShapeCount() - added.size());
+    }
+
+    private static int[] readRows(ByteBuffer data) {
+        int count = data.getInt();
+        if (count < 0 || count > data.remaining() / 4) {
+            throw new IllegalArgumentException("Nombre de lignes invalide: " + count);
+        }
+        int[] rows = new int[count];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = data.getInt();
+        }
+        return rows;
+    }
+
+    /**
+     * Une commande désigne la forme du dessin de même clé, sinon une forme retirée;
+     * deux commandes sur la même forme retirée partagent le même objet
+     */
+    private void readCommands(ByteBuffer history, Map<Long, Shape> byKey, List<Command> out) {
+        int count = history.getInt();
+        for (int i = 0; i < count; i++) {
+            byte kind = history.get();
+            long key = history.getLong();
+            Shape decoded = ShapeCodec.readRecord(history);
+            Shape shape = byKey.computeIfAbsent(key, k -> {
+                decoded.setKey(k);
+                return decoded;
+            });
+            out.add(kind == ADD ? new AddShapeCommand(drawing, shape) : new RemoveShapeCommand(drawing, shape));
+        }
+    }
+
+    /**
+     * Dans le stockage en colonnes, le dessin contient des vues et non les objets relus:
+     * les commandes doivent désigner ces vues
+     * @param from première forme à considérer (l'historique d'un fichier .drw encore projeté
+     *             ne désigne que des formes ajoutées après celles du fichier)
+     */
+    private void rebindHistory(List<Command> undo, List<Command> redo, int from) {
+        Map<Long, Shape> inDrawing = new HashMap<>();
+        List<Shape> shapes = drawing.getShapesView();
+        for (int i = from; i < shapes.size(); i++) {
+            inDrawing.put(shapes.get(i).getKey(), shapes.get(i));
+        }
+        List<Command> reboundUndo = rebind(undo, inDrawing);
+        List<Command> reboundRedo = rebind(redo, inDrawing);
+        commandManager.restoreHistory(reboundUndo, reboundRedo);
+    }
+
+    private List<Command> rebind(List<Command> commands, Map<Long, Shape> inDrawing) {
+        List<Command> rebound = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            Shape shape = command instanceof AddShapeCommand
+                    ? ((AddShapeCommand) command).getShape() : ((RemoveShapeCommand) command).getShape();
+            Shape current = inDrawing.getOrDefault(shape.getKey(), shape);
+            if (current == shape) {
+                rebound.add(command);
+            } else {
+                rebound.add(command instanceof AddShapeCommand
+                        ? new AddShapeCommand(drawing, current) : new RemoveShapeCommand(drawing, current));
+            }
+        }
+        return rebound;
+    }
+
+    /**
+     * Rejoue les enregistrements du journal de même génération que le point de reprise
+     * @return nombre d'enregistrements rejoués
+     */
+    private int replayJournal() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+        if (data.remaining() < HEADER_SIZE || readHeader(data, JOURNAL_MAGIC) != generation) {
+            // Journal déjà contenu dans le point de reprise (arrêt pendant un point de reprise)
+            return 0;
+        }
+
+        int replayed = 0;
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+            if (length <= 0 || length + 4 > data.remaining()) break;
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != data.getInt(data.position() + length)) break;
+
+            ByteBuffer entry = data.slice(data.position(), length);
+            data.position(data.position() + length + 4);
+            try {
+                replay(entry);
+            } catch (RuntimeException | IOException e) {
+                logger.logError("Reprise interrompue après " + replayed + " opérations: " + e.getMessage());
+                break;
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private void replay(ByteBuffer entry) throws IOException {
+        byte type = entry.get();
+        switch (type) {
+            case EXECUTE:
+                byte kind = entry.get();
+                long key = entry.getLong();
+                Shape shape = ShapeCodec.readRecord(entry);
+                if (kind == ADD) {
+                    commandManager.executeCommand(new AddShapeCommand(drawing, shape));
+                    // Les clés sont attribuées dans le même ordre que lors de l'enregistrement
+                    if (shape.getKey() != key) {
+                        throw new IOException("Journal incohérent avec le dessin (clé " + key + ")");
+                    }
+                } else {
+                    commandManager.executeCommand(new RemoveShapeCommand(drawing, findShape(key, shape)));
+                }
+                break;
+            case UNDO:
+                commandManager.undo();
+                break;
+            case REDO:
+                commandManager.redo();
+                break;
+            case IDENTITY:
+                byte[] name = new byte[entry.getInt()];
+                entry.get(name);
+                drawing.setName(new String(name, StandardCharsets.UTF_8));
+                drawing.setId(entry.getLong());
+                break;
+            default:
+                throw new IOException("Enregistrement de journal inconnu: " + type);
+        }
+    }
+
+    private Shape findShape(long key, Shape fallback) {
+        List<Shape> shapes = drawing.getShapesView();
+        for (int i = shapes.size() - 1; i >= 0; i--) {
+            if (shapes.get(i).getKey() == key) {
+                return shapes.get(i);
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,18 @@
+package command;
+
+/**
+ * Écouteur de l'historique des commandes (journal de reprise...)
+ * Appelé après l'exécution, l'annulation ou le rétablissement de la commande
+ */
+public interface CommandListener {
+    void commandExecuted(Command command);
+
+    void commandUndone(Command command);
+
+    void commandRedone(Command command);
+
+    /**
+     * L'historique a été vidé (nouveau dessin, chargement...)
+     */
+    void historyCleared();
+}
@@ -1,5 +1,7 @@
 package command;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 /**
@@ -8,16 +10,28 @@ import java.util.Stack;
 public class CommandManager {
     private final Stack<Command> undoStack;
     private final Stack<Command> redoStack;
+    private final List<CommandListener> listeners = new ArrayList<>();
     
     public CommandManager() {
         this.undoStack = new Stack<>();
         this.redoStack = new Stack<>();
     }
     
+    public void addCommandListener(CommandListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeCommandListener(CommandListener listener) {
+        listeners.remove(listener);
+    }
+    
     public void executeCommand(Command command) {
         command.execute();
         undoStack.push(command);
         redoStack.clear(); // Effacer l'historique redo après une nouvelle commande
+        for (CommandListener listener : listeners) {
+            listener.commandExecuted(command);
+        }
     }
     
     public void undo() {
@@ -25,6 +39,9 @@ public class CommandManager {
             Command command = undoStack.pop();
             command.undo();
             redoStack.push(command);
+            for (CommandListener listener : listeners) {
+                listener.commandUndone(command);
+            }
         }
     }
     
@@ -33,6 +50,9 @@ public class CommandManager {
             Command command = redoStack.pop();
             command.execute();
             undoStack.push(command);
+            for (CommandListener listener : listeners) {
+                listener.commandRedone(command);
+            }
         }
     }
     
@@ -55,5 +75,32 @@ public class CommandManager {
     public void clear() {
         undoStack.clear();
         redoStack.clear();
+        for (CommandListener listener : listeners) {
+            listener.historyCleared();
+        }
+    }
+    
+    /**
+     * Commandes annulables, de la plus ancienne à la prochaine à annuler
+     */
+    public List<Command> getUndoHistory() {
+        return new ArrayList<>(undoStack);
+    }
+    
+    /**
+     * Commandes rétablissables, de la plus ancienne à la prochaine à rétablir
+     */
+    public List<Command> getRedoHistory() {
+        return new ArrayList<>(redoStack);
+    }
+    
+    /**
+     * Remplace l'historique (reprise après incident), sans notifier les écouteurs
+     */
+    public void restoreHistory(List<Command> undo, List<Command> redo) {
+        undoStack.clear();
+        undoStack.addAll(undo);
+        redoStack.clear();
+        redoStack.addAll(redo);
     }
 }
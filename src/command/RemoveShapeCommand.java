@@ -30,6 +30,10 @@ public class RemoveShapeCommand implements Command {
         logger.logAction("UNDO_REMOVE_SHAPE", shape.toStringRepresentation());
     }
     
+    public Shape getShape() {
+        return shape;
+    }
+    
     @Override
     public String getDescription() {
         return "Supprimer " + shape.getClass().getSimpleName();
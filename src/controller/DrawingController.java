@@ -6,12 +6,18 @@ import factory.ShapeFactoryManager;
 import model.*;
 import strategy.*;
 import utils.Logger;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Contrôleur principal de l'application
@@ -28,16 +34,43 @@ public class DrawingController {
     private double currentStrokeWidth = 2.0;
     private Shape selectedShape;
     
+    // Chargement en cours (null si aucun) et observateur de l'interface
+    private DrawingLoadTask loadTask;
+    // Dessin à charger dès la fin de la sauvegarde en cours (null si aucun)
+    private String pendingLoad;
+    private Consumer<DrawingLoadTask> onLoadStarted;
+    
+    // Sauvegarde en arrière-plan et messages de progression pour l'interface
+    private DrawingSaveService saveService;
+    private Consumer<String> onSaveStatus;
+    
+    // Journal de reprise après incident
+    private CommandJournal journal;
+    
     public DrawingController(Drawing drawing) {
         this.drawing = drawing;
         this.commandManager = new CommandManager();
         this.logger = Logger.getInstance();
         this.dbManager = DatabaseManager.getInstance();
+        this.journal = new CommandJournal(drawing, commandManager);
+        this.saveService = new DrawingSaveService(dbManager);
+        saveService.setOnSaved(name -> {
+            journal.recordIdentity();
+            logger.logAction("SAVE_DRAWING", "Dessin '" + name + "' enregistré");
+            saveStatus("Dessin '" + name + "' enregistré");
+        });
+        saveService.setOnFailed((name, e) -> {
+            logger.logError("Erreur lors de l'enregistrement: " + e.getMessage());
+            saveStatus("Échec de l'enregistrement");
+            showError("Erreur", "Impossible d'enregistrer le dessin '" + name + "': " + e.getMessage());
+        });
         
         logger.log("Contrôleur de dessin initialisé");
     }
     
     public void createShape(double startX, double startY, double endX, double endY) {
+        // Le dessin est en cours de remplacement par le dessin chargé
+        if (isLoading()) return;
         try {
             Shape shape = null;
 
@@ -101,34 +134,48 @@ public class DrawingController {
     }
     
     public void newDrawing() {
+        cancelLoading();
         drawing.clear();
         commandManager.clear();
         logger.logAction("NEW_DRAWING", "Nouveau dessin créé");
     }
     
+    /**
+     * Enregistre le dessin en arrière-plan: l'interface reste utilisable pendant l'écriture
+     */
     public void saveDrawing() {
-        try {
-            if (drawing.getName().equals("Nouveau Dessin")) {
-                TextInputDialog dialog = new TextInputDialog();
-                dialog.setTitle("Enregistrer le dessin");
-                dialog.setHeaderText("Nom du dessin");
-                dialog.setContentText("Entrez le nom du dessin:");
-                
-                Optional<String> result = dialog.showAndWait();
-                if (result.isPresent() && !result.get().trim().isEmpty()) {
-                    drawing.setName(result.get().trim());
-                } else {
-                    return;
-                }
-            }
-            
-            dbManager.saveDrawing(drawing);
-            logger.logAction("SAVE_DRAWING", "Dessin '" + drawing.getName() + "' enregistré");
-            showInfo("Succès", "Dessin enregistré avec succès!");
+        if (isLoading()) {
+            showInfo("Information", "Chargement en cours: attendez la fin ou annulez-le avant d'enregistrer.");
+            return;
+        }
+        if (drawing.getName().equals("Nouveau Dessin")) {
+            TextInputDialog dialog = new TextInputDialog();
+            dialog.setTitle("Enregistrer le dessin");
+            dialog.setHeaderText("Nom du dessin");
+            dialog.setContentText("Entrez le nom du dessin:");
             
-        } catch (SQLException e) {
-            logger.logError("Erreur lors de l'enregistrement: " + e.getMessage());
-            showError("Erreur", "Impossible d'enregistrer le dessin: " + e.getMessage());
+            Optional<String> result = dialog.showAndWait();
+            if (result.isPresent() && !result.get().trim().isEmpty()) {
+                drawing.setName(result.get().trim());
+            } else {
+                return;
+            }
+        }
+        
+        saveStatus("Enregistrement de '" + drawing.getName() + "'...");
+        saveService.save(drawing);
+    }
+    
+    /**
+     * Notifié (sur le thread FX) de l'avancement des sauvegardes
+     */
+    public void setOnSaveStatus(Consumer<String> onSaveStatus) {
+        this.onSaveStatus = onSaveStatus;
+    }
+    
+    private void saveStatus(String status) {
+        if (onSaveStatus != null) {
+            onSaveStatus.accept(status);
         }
     }
     
@@ -158,41 +205,168 @@ public class DrawingController {
         }
     }
 
-    private void loadDrawing(String drawingName) {
+    /**
+     * Ouvre un fichier .drw: le fichier est projeté en mémoire, les formes sont lues
+     * à la demande quand la vue les affiche
+     */
+    public void openDrawingFile() {
+        FileChooser chooser = createDrawingFileChooser("Ouvrir un fichier de dessin");
+        File file = chooser.showOpenDialog(null);
+        if (file == null) return;
+        
         try {
-            // Charger le dessin depuis la base de données
-            Drawing loadedDrawing = dbManager.loadDrawing(drawingName);
+            MappedShapeStore store = MappedShapeStore.open(file.toPath());
+            cancelLoading();
+            drawing.replaceStore(store);
+            drawing.reserveKeys(store.getLastKey());
+            drawing.setName(store.getName());
+            drawing.setId(store.getDrawingId());
+            commandManager.clear();
+            logger.logAction("OPEN_FILE", "Fichier '" + file + "' ouvert (" + store.size() + " formes)");
+        } catch (IOException e) {
+            logger.logError("Erreur lors de l'ouverture du fichier: " + e.getMessage());
+            showError("Erreur", "Impossible d'ouvrir le fichier '" + file + "': " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Exporte le dessin courant en fichier .drw; l'écriture se fait en arrière-plan
+     */
+    public void exportDrawingFile() {
+        if (isLoading()) {
+            showInfo("Information", "Chargement en cours: attendez la fin ou annulez-le avant d'exporter.");
+            return;
+        }
+        FileChooser chooser = createDrawingFileChooser("Exporter le dessin");
+        chooser.setInitialFileName(drawing.getName() + MappedShapeStore.EXTENSION);
+        File file = chooser.showSaveDialog(null);
+        if (file == null) return;
+        
+        // Copie figée prise ici: le dessin peut être modifié pendant l'écriture
+        String name = drawing.getName();
+        long drawingId = drawing.getId();
+        long lastKey = drawing.getLastKey();
+        List<Shape> shapes = drawing.frozenSnapshot();
+        saveStatus("Export de '" + name + "'...");
+        Thread thread = new Thread(() -> {
+            try {
+                MappedShapeStore.write(file.toPath(), name, drawingId, lastKey, shapes);
+                Platform.runLater(() -> {
+                    logger.logAction("EXPORT_FILE", "Dessin '" + name + "' exporté vers '" + file + "'");
+                    saveStatus("Dessin '" + name + "' exporté");
+                });
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> {
+                    logger.logError("Erreur lors de l'export: " + e.getMessage());
+                    saveStatus("Échec de l'export");
+                    showError("Erreur", "Impossible d'exporter le dessin: " + e.getMessage());
+                });
+            }
+        }, "drawing-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private FileChooser createDrawingFileChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Dessins (*" + MappedShapeStore.EXTENSION + ")",
+                        "*" + MappedShapeStore.EXTENSION));
+        return chooser;
+    }
+
+    /**
+     * Charge le dessin en arrière-plan: les formes apparaissent page par page
+     */
+    private void loadDrawing(String drawingName) {
+        cancelLoading();
+        if (saveService.isSaving()) {
+            saveStatus("Chargement de '" + drawingName + "' après la sauvegarde en cours...");
+        }
+        // La lecture ne démarre qu'une fois les écritures du dessin courant terminées;
+        // d'ici là le dessin est considéré en chargement (pas de modification ni de sauvegarde)
+        pendingLoad = drawingName;
+        saveService.whenIdle(() -> {
+            pendingLoad = null;
+            startLoading(drawingName);
+        });
+    }
 
-            // Remplacer le dessin actuel par le dessin chargé
-            replaceCurrentDrawing(loadedDrawing);
+    private void startLoading(String drawingName) {
+        // Vider le dessin courant; l'historique ne s'applique plus au dessin chargé
+        drawing.clear();
+        drawing.setName(drawingName);
+        // Pas encore lié à la version enregistrée (voir DrawingLoadTask.onStart)
+        drawing.setId(0);
+        commandManager.clear();
 
+        DrawingLoadTask task = new DrawingLoadTask(dbManager, drawingName, drawing);
+        task.setOnSucceeded(e -> {
+            // Un chargement plus récent a pu démarrer avant ce traitement
+            if (loadTask == task) {
+                loadTask = null;
+            }
+            journal.checkpoint();
             logger.logAction("LOAD_DRAWING", "Dessin '" + drawingName + "' chargé avec succès");
-            showInfo("Succès", "Dessin '" + drawingName + "' ouvert avec succès!");
+        });
+        task.setOnFailed(e -> {
+            if (loadTask == task) {
+                loadTask = null;
+            }
+            journal.checkpoint();
+            String message = task.getException() != null ? task.getException().getMessage() : "erreur inconnue";
+            logger.logError("Erreur lors du chargement du dessin '" + drawingName + "': " + message);
+            showError("Erreur", "Impossible de charger le dessin '" + drawingName + "': " + message);
+        });
+        task.setOnCancelled(e -> {
+            if (loadTask == task) {
+                loadTask = null;
+            }
+            // Les formes déjà reçues restent dans le dessin
+            journal.checkpoint();
+            logger.logAction("LOAD_DRAWING", "Chargement de '" + drawingName + "' annulé");
+        });
 
-        } catch (SQLException e) {
-            logger.logError("Erreur lors du chargement du dessin '" + drawingName + "': " + e.getMessage());
-            showError("Erreur", "Impossible de charger le dessin '" + drawingName + "': " + e.getMessage());
+        loadTask = task;
+        if (onLoadStarted != null) {
+            onLoadStarted.accept(task);
         }
+        Thread thread = new Thread(task, "drawing-loader");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void replaceCurrentDrawing(Drawing newDrawing) {
-        // Effacer le dessin actuel
-        drawing.clear();
-
-        // Copier toutes les formes du nouveau dessin
-        for (Shape shape : newDrawing.getShapes()) {
-            drawing.addShape(shape);
+    /**
+     * Interrompt le chargement en cours; les formes déjà reçues restent affichées
+     */
+    public void cancelLoading() {
+        if (pendingLoad != null) {
+            saveService.cancelWhenIdle();
+            pendingLoad = null;
+        }
+        if (loadTask != null) {
+            // Les pages restantes ne seront pas ajoutées: une sauvegarde complète doit les conserver
+            if (loadTask.cancel()) {
+                drawing.markPartial();
+            }
+            loadTask = null;
         }
+    }
 
-        // Mettre à jour le nom et l'ID du dessin
-        drawing.setName(newDrawing.getName());
-        drawing.setId(newDrawing.getId());
+    public boolean isLoading() {
+        return loadTask != null || pendingLoad != null;
+    }
 
-        // Effacer l'historique des commandes car nous avons un nouveau dessin
-        commandManager.clear();
+    /**
+     * Notifié (sur le thread FX) au début de chaque chargement, pour suivre sa progression
+     */
+    public void setOnLoadStarted(Consumer<DrawingLoadTask> onLoadStarted) {
+        this.onLoadStarted = onLoadStarted;
     }
     
     public void clearDrawing() {
+        cancelLoading();
         drawing.clear();
         commandManager.clear();
         logger.logAction("CLEAR_DRAWING", "Dessin effacé");
@@ -235,7 +409,32 @@ public class DrawingController {
         alert.showAndWait();
     }
     
+    /**
+     * Reprend le dessin laissé par un arrêt inattendu, puis démarre le journal de reprise
+     * À appeler une fois, au démarrage de l'application
+     */
+    public void recoverSession() {
+        try {
+            if (journal.recover()) {
+                logger.logAction("RECOVER_DRAWING", "Dessin '" + drawing.getName() + "' récupéré");
+                showInfo("Récupération", "Le dessin '" + drawing.getName()
+                        + "' a été récupéré après un arrêt inattendu.");
+            }
+        } catch (IOException e) {
+            logger.logError("Impossible de récupérer le dessin précédent: " + e.getMessage());
+        }
+        try {
+            journal.open();
+        } catch (IOException e) {
+            logger.logError("Journal de reprise indisponible: " + e.getMessage());
+        }
+    }
+    
     public void cleanup() {
+        cancelLoading();
+        // Terminer l'écriture en cours avant de fermer la connexion
+        saveService.shutdown();
+        journal.close();
         dbManager.close();
         logger.log("Application fermée proprement");
     }
@@ -247,4 +446,5 @@ public class DrawingController {
     public Color getCurrentColor() { return currentColor; }
     public void setCurrentColor(Color color) { this.currentColor = color; }
     public double getCurrentStrokeWidth() { return currentStrokeWidth; }
+    public Shape getSelectedShape() { return selectedShape; }
 }
@@ -0,0 +1,71 @@
+package controller;
+
+import database.DatabaseManager;
+import database.ShapePageListener;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import model.Drawing;
+import model.Shape;
+import java.util.List;
+
+/**
+ * Chargement progressif d'un dessin sur un thread d'arrière-plan
+ * Les pages lues en base sont ajoutées au dessin cible (sur le thread FX) au fur
+ * et à mesure: le canevas se remplit pendant le chargement. La progression et
+ * l'annulation passent par l'API standard de Task.
+ */
+public class DrawingLoadTask extends Task<Drawing> {
+    // Formes par page: un bloc du stockage compressé
+    public static final int PAGE_SIZE = DatabaseManager.SHAPES_PER_CHUNK;
+
+    private final DatabaseManager dbManager;
+    private final String drawingName;
+    private final Drawing target;
+
+    public DrawingLoadTask(DatabaseManager dbManager, String drawingName, Drawing target) {
+        this.dbManager = dbManager;
+        this.drawingName = drawingName;
+        this.target = target;
+        updateTitle("Chargement de '" + drawingName + "'");
+    }
+
+    @Override
+    protected Drawing call() throws Exception {
+        return dbManager.streamDrawing(drawingName, PAGE_SIZE, new ShapePageListener() {
+            @Override
+            public void onStart(long drawingId, long lastKey) {
+                // Le dessin cible devient la version enregistrée: les pages suivantes ne sont pas
+                // des modifications, et une sauvegarde après annulation reste incrémentale.
+                // Les clés enregistrées sont réservées: une forme ajoutée après une annulation
+                // ne reprend pas la clé d'une forme non chargée
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        target.setId(drawingId);
+                        target.reserveKeys(lastKey);
+                        target.markSaved();
+                    }
+                });
+            }
+
+            @Override
+            public boolean onPage(List<Shape> page, long loaded, long total) {
+                if (isCancelled()) {
+                    return false;
+                }
+                // Une page déjà en file n'est plus ajoutée après une annulation
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        target.addSavedShapes(page);
+                    }
+                });
+                updateProgress(loaded, Math.max(total, loaded));
+                updateMessage(String.format("Chargement: %d / %d formes", loaded, total));
+                return true;
+            }
+        });
+    }
+
+    public String getDrawingName() {
+        return drawingName;
+    }
+}
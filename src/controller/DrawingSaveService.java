@@ -0,0 +1,189 @@
+package controller;
+
+import database.DatabaseManager;
+import database.StaleChangesException;
+import javafx.application.Platform;
+import model.Drawing;
+import model.DrawingChanges;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sauvegarde des dessins en arrière-plan
+ * Les modifications sont capturées sur le thread FX (Drawing.takeChanges en donne une
+ * copie figée) puis écrites par un thread dédié; le résultat revient sur le thread FX.
+ * Les demandes reçues pendant une écriture sont regroupées: une seule sauvegarde suit,
+ * capturée au moment où elle démarre, donc avec l'état le plus récent.
+ */
+public class DrawingSaveService {
+    // Attente maximale de l'écriture en cours à la fermeture
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final DatabaseManager dbManager;
+    private final ExecutorService writer;
+    // Exécution sur le thread FX (remplaçable hors application JavaFX)
+    private final Consumer<Runnable> fxThread;
+
+    // État manipulé uniquement sur le thread FX
+    private boolean writing;
+    // Dessin à sauvegarder dès la fin de l'écriture en cours (null si aucun)
+    private Drawing pending;
+    // Action à lancer dès qu'aucune écriture n'est en cours (null si aucune)
+    private Runnable idleAction;
+    private Consumer<String> onSaved;
+    private BiConsumer<String, Exception> onFailed;
+
+    public DrawingSaveService(DatabaseManager dbManager) {
+        this(dbManager, Platform::runLater);
+    }
+
+    public DrawingSaveService(DatabaseManager dbManager, Consumer<Runnable> fxThread) {
+        this.dbManager = dbManager;
+        this.fxThread = fxThread;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "drawing-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Demande la sauvegarde du dessin (thread FX)
+     * Si une écriture est en cours, la demande attend sa fin et remplace les demandes précédentes.
+     */
+    public void save(Drawing drawing) {
+        if (writing) {
+            pending = drawing;
+            return;
+        }
+        start(drawing);
+    }
+
+    public boolean isSaving() {
+        return writing || pending != null;
+    }
+
+    /**
+     * Exécute l'action sur le thread FX dès que les sauvegardes en cours sont écrites
+     * (immédiatement s'il n'y en a pas); une nouvelle demande remplace celle en attente.
+     */
+    public void whenIdle(Runnable action) {
+        if (isSaving()) {
+            idleAction = action;
+            return;
+        }
+        idleAction = null;
+        action.run();
+    }
+
+    /**
+     * Abandonne l'action demandée par whenIdle si elle n'a pas encore été lancée
+     */
+    public void cancelWhenIdle() {
+        idleAction = null;
+    }
+
+    /**
+     * Notifié sur le thread FX avec le nom du dessin enregistré
+     */
+    public void setOnSaved(Consumer<String> onSaved) {
+        this.onSaved = onSaved;
+    }
+
+    /**
+     * Notifié sur le thread FX avec le nom du dessin et l'erreur; la sauvegarde suivante sera complète
+     */
+    public void setOnFailed(BiConsumer<String, Exception> onFailed) {
+        this.onFailed = onFailed;
+    }
+
+    private void start(Drawing drawing) {
+        String name = drawing.getName();
+        long capturedId = drawing.getId();
+        DrawingChanges changes = drawing.takeChanges();
+        if (changes.isEmpty()) {
+            if (onSaved != null) {
+                onSaved.accept(name);
+            }
+            return;
+        }
+
+        writing = true;
+        writer.execute(() -> {
+            try {
+                long drawingId = dbManager.saveChanges(name, changes);
+                fxThread.accept(() -> finished(drawing, name, capturedId, drawingId, null));
+            } catch (Exception e) {
+                fxThread.accept(() -> finished(drawing, name, capturedId, 0, e));
+            }
+        });
+    }
+
+    private void finished(Drawing drawing, String name, long capturedId, long drawingId, Exception error) {
+        writing = false;
+        if (error == null) {
+            // Un dessin rechargé entre-temps garde l'identifiant de sa propre version
+            if (drawing.getId() == capturedId) {
+                drawing.setId(drawingId);
+            }
+            if (onSaved != null) {
+                onSaved.accept(name);
+            }
+        } else {
+            // Les modifications capturées sont perdues pour le suivi incrémental: tout réécrire
+            drawing.requireFullSave();
+            if (error instanceof StaleChangesException) {
+                // La base a changé depuis la dernière sauvegarde: relancer en sauvegarde complète
+                if (pending == null) {
+                    pending = drawing;
+                }
+            } else if (onFailed != null) {
+                onFailed.accept(name, error);
+            }
+        }
+
+        if (pending != null) {
+            Drawing next = pending;
+            pending = null;
+            start(next);
+        }
+        if (!isSaving() && idleAction != null) {
+            Runnable action = idleAction;
+            idleAction = null;
+            action.run();
+        }
+    }
+
+    /**
+     * Attend la fin de l'écriture en cours, puis écrit la dernière demande en attente
+     * sur le thread appelant (fermeture de l'application)
+     */
+    public void shutdown() {
+        idleAction = null;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (pending != null) {
+            // Le résultat de l'écriture précédente n'a pas été traité: tout réécrire
+            Drawing drawing = pending;
+            pending = null;
+            drawing.requireFullSave();
+            try {
+                drawing.setId(dbManager.saveChanges(drawing.getName(), drawing.takeChanges()));
+            } catch (Exception e) {
+                if (onFailed != null) {
+                    onFailed.accept(drawing.getName(), e);
+                }
+            }
+        }
+    }
+}
@@ -2,16 +2,33 @@ package database;
 
 import javafx.scene.control.Alert;
 import model.Drawing;
+import model.DrawingChanges;
+import model.MappedShapeStore;
 import model.Shape;
-import factory.ShapeFactoryManager;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import javafx.scene.control.ChoiceDialog;
 import utils.Logger;
 
 /**
  * Gestionnaire de base de données utilisant le Singleton Pattern
+ * Une seule connexion d'écriture, partagée entre threads et protégée par writeLock.
+ * Les lectures (chargements, liste des dessins) ouvrent leur propre connexion: en mode WAL
+ * elles ne voient que des transactions validées et n'attendent pas l'écriture en cours.
  */
 public class DatabaseManager {
     private static DatabaseManager instance;
@@ -19,7 +36,61 @@ public class DatabaseManager {
 
     private Connection connection;
     private static final String DB_URL = "jdbc:sqlite:drawing_app.db";
+    // Propriété système pour utiliser une autre base (mesures, essais)
+    public static final String DB_URL_PROPERTY = "drawing.db.url";
+    private String dbUrl;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Lignes de journal reçues pendant une écriture, insérées après sa validation
+    private final Queue<String[]> pendingLogs = new ConcurrentLinkedQueue<>();
     private Drawing drawing;
+    private int saveBatchSize = DEFAULT_SAVE_BATCH_SIZE;
+    private double lastSaveRowsPerSecond;
+    private ShapeStorageMode storageMode = ShapeStorageMode.CHUNKS;
+    private int decodeParallelism = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_SAVE_BATCH_SIZE = 1000;
+    private static final int SCHEMA_VERSION = 3;
+    // Formes par bloc en mode CHUNKS
+    public static final int SHAPES_PER_CHUNK = 4096;
+
+    // Réglages de la connexion, appliqués à chaque ouverture
+    // WAL: les lectures ne bloquent pas l'écriture et chaque validation n'écrit que le journal;
+    // synchronous NORMAL suffit en WAL (pas de corruption, seules les dernières transactions
+    // peuvent être perdues sur coupure de courant)
+    private static final String[] CONNECTION_PRAGMAS = {
+        "PRAGMA journal_mode = WAL",
+        "PRAGMA synchronous = NORMAL",
+        // Taille négative: en Kio (64 Mo de cache de pages)
+        "PRAGMA cache_size = -65536",
+        // Lecture des pages par projection mémoire, jusqu'à 256 Mo
+        "PRAGMA mmap_size = 268435456",
+        "PRAGMA temp_store = MEMORY"
+    };
+
+    // Index du schéma, créés s'ils manquent à chaque ouverture (après la migration)
+    private static final String[] SCHEMA_INDEXES = {
+        // Recherche d'un dessin par nom (findDrawing)
+        "CREATE INDEX IF NOT EXISTS idx_drawings_name ON drawings (name)",
+        // Liste des dessins triée par date (getDrawingNames)
+        "CREATE INDEX IF NOT EXISTS idx_drawings_created ON drawings (created_date)",
+        // Formes d'un dessin: sert aussi de l'index sur drawing_id seul
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_shapes_drawing_key ON shapes (drawing_id, shape_key)",
+        // Blocs d'un dessin dans l'ordre (chargement bloc par bloc, dernier bloc)
+        "CREATE INDEX IF NOT EXISTS idx_shape_chunks_drawing ON shape_chunks (drawing_id, chunk_index)"
+    };
+
+    // shape_key: clé stable de la forme dans son dessin (ordre z)
+    // shape_data: ancien format texte, shape_blob: format binaire (ShapeCodec)
+    private static final String SHAPES_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+            id INTEGER PRIMARY KEY AUTOINCREMENT,
+            drawing_id INTEGER,
+            shape_key INTEGER,
+            shape_type TEXT NOT NULL,
+            shape_data TEXT,
+            shape_blob BLOB,
+            FOREIGN KEY (drawing_id) REFERENCES drawings (id)
+        )
+    """;
 
     private DatabaseManager() {
         initializeDatabase();
@@ -36,7 +107,9 @@ public class DatabaseManager {
         try {
             // Charger le driver SQLite
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(DB_URL);
+            dbUrl = System.getProperty(DB_URL_PROPERTY, DB_URL);
+            connection = DriverManager.getConnection(dbUrl);
+            configureConnection(connection);
             createTables();
             System.out.println("Base de données SQLite initialisée avec succès");
         } catch (ClassNotFoundException e) {
@@ -54,16 +127,22 @@ public class DatabaseManager {
             CREATE TABLE IF NOT EXISTS drawings (
                 id INTEGER PRIMARY KEY AUTOINCREMENT,
                 name TEXT NOT NULL,
-                created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                storage_mode TEXT NOT NULL DEFAULT 'ROWS'
             )
         """;
 
-        String createShapesTable = """
-            CREATE TABLE IF NOT EXISTS shapes (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                drawing_id INTEGER,
-                shape_type TEXT NOT NULL,
-                shape_data TEXT NOT NULL,
+        String createShapesTable = String.format(SHAPES_TABLE, "shapes");
+
+        String createChunksTable = """
+            CREATE TABLE IF NOT EXISTS shape_chunks (
+                id INTEGER PRIMARY KEY,
+                drawing_id INTEGER NOT NULL,
+                chunk_index INTEGER NOT NULL,
+                shape_count INTEGER NOT NULL,
+                first_key INTEGER,
+                last_key INTEGER,
+                data BLOB NOT NULL,
                 FOREIGN KEY (drawing_id) REFERENCES drawings (id)
             )
         """;
@@ -80,109 +159,872 @@ public class DatabaseManager {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(createDrawingsTable);
             stmt.execute(createShapesTable);
+            stmt.execute(createChunksTable);
             stmt.execute(createLogsTable);
         }
+        migrateSchema();
+        try (Statement stmt = connection.createStatement()) {
+            for (String index : SCHEMA_INDEXES) {
+                stmt.execute(index);
+            }
+        }
+    }
+
+    private static void configureConnection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : CONNECTION_PRAGMAS) {
+                stmt.execute(pragma);
+            }
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                // Une base en mémoire ou en lecture seule garde son mode de journal
+                if (rs.next() && !"wal".equalsIgnoreCase(rs.getString(1))) {
+                    System.err.println("Mode WAL indisponible, journal: " + rs.getString(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Met à jour une base créée par une version antérieure (PRAGMA user_version)
+     * Version 1: shape_data devient facultatif et les formes sont stockées en binaire
+     * dans shape_blob. Les lignes texte existantes sont converties.
+     * Version 2: mode de stockage par dessin (drawings.storage_mode), table shape_chunks.
+     * Version 3: clés stables des formes (shapes.shape_key, plages de clés des blocs).
+     */
+    private void migrateSchema() throws SQLException {
+        int version;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            int converted = 0;
+            if (version < 1) {
+                if (!hasColumn("shapes", "shape_blob")) {
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute(String.format(SHAPES_TABLE, "shapes_v1"));
+                        stmt.execute("INSERT INTO shapes_v1 (id, drawing_id, shape_type, shape_data) "
+                                + "SELECT id, drawing_id, shape_type, shape_data FROM shapes");
+                        stmt.execute("DROP TABLE shapes");
+                        stmt.execute("ALTER TABLE shapes_v1 RENAME TO shapes");
+                    }
+                }
+                converted = convertTextShapes();
+            }
+            if (version < 2 && !hasColumn("drawings", "storage_mode")) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("ALTER TABLE drawings ADD COLUMN storage_mode TEXT NOT NULL DEFAULT 'ROWS'");
+                }
+            }
+            if (version < 3) {
+                try (Statement stmt = connection.createStatement()) {
+                    if (!hasColumn("shapes", "shape_key")) {
+                        stmt.execute("ALTER TABLE shapes ADD COLUMN shape_key INTEGER");
+                    }
+                    if (!hasColumn("shape_chunks", "first_key")) {
+                        stmt.execute("ALTER TABLE shape_chunks ADD COLUMN first_key INTEGER");
+                        stmt.execute("ALTER TABLE shape_chunks ADD COLUMN last_key INTEGER");
+                    }
+                    // Les lignes existantes gardent leur ordre: la clé est l'id de la ligne
+                    stmt.execute("UPDATE shapes SET shape_key = id WHERE shape_key IS NULL");
+                    // Les blocs existants sont tous pleins sauf le dernier
+                    stmt.execute("UPDATE shape_chunks SET first_key = chunk_index * " + SHAPES_PER_CHUNK + " + 1, "
+                            + "last_key = chunk_index * " + SHAPES_PER_CHUNK + " + shape_count WHERE first_key IS NULL");
+                    stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_shapes_drawing_key ON shapes (drawing_id, shape_key)");
+                }
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            }
+            connection.commit();
+            if (converted > 0) {
+                System.out.println("Migration: " + converted + " formes converties au format binaire");
+            }
+        } catch (SQLException | RuntimeException e) {
+            rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Réencode en binaire les formes stockées en texte (les lignes illisibles restent en texte)
+     */
+    private int convertTextShapes() throws SQLException {
+        String select = "SELECT id, shape_type, shape_data FROM shapes WHERE shape_blob IS NULL";
+        String update = "UPDATE shapes SET shape_blob = ?, shape_data = NULL WHERE id = ?";
+        int converted = 0;
+        try (Statement selectStmt = connection.createStatement();
+             ResultSet rs = selectStmt.executeQuery(select);
+             PreparedStatement updateStmt = connection.prepareStatement(update)) {
+            while (rs.next()) {
+                Shape shape = ShapeCodec.parseText(rs.getString("shape_type"), rs.getString("shape_data"));
+                if (shape == null) continue;
+                updateStmt.setBytes(1, ShapeCodec.encode(shape));
+                updateStmt.setLong(2, rs.getLong("id"));
+                updateStmt.addBatch();
+                if (++converted % saveBatchSize == 0) {
+                    updateStmt.executeBatch();
+                }
+            }
+            updateStmt.executeBatch();
+        }
+        return converted;
+    }
+
+    /**
+     * Connexion de lecture propre à l'appelant, dans une transaction de lecture:
+     * toutes ses requêtes voient le même état validé de la base (à fermer)
+     */
+    private Connection openReadConnection() throws SQLException {
+        Connection read = DriverManager.getConnection(dbUrl);
+        try {
+            configureConnection(read);
+            read.setAutoCommit(false);
+            return read;
+        } catch (SQLException e) {
+            read.close();
+            throw e;
+        }
     }
 
     public Drawing loadDrawing(String drawingName) throws SQLException {
+        // Charger toutes les pages puis les ajouter en un seul lot
+        List<Shape> shapes = new ArrayList<>();
+        Drawing drawing = streamDrawing(drawingName, SHAPES_PER_CHUNK, (page, loaded, total) -> {
+            shapes.addAll(page);
+            return true;
+        });
+        drawing.markSaved();
+        drawing.addSavedShapes(shapes);
+        return drawing;
+    }
+
+    /**
+     * Exporte un dessin enregistré vers un fichier .drw (MappedShapeStore)
+     */
+    public void exportDrawing(String drawingName, Path file) throws SQLException, IOException {
+        Drawing drawing = loadDrawing(drawingName);
+        MappedShapeStore.write(file, drawing.getName(), drawing.getId(), drawing.getLastKey(), drawing.snapshot());
+    }
+
+    /**
+     * Enregistre en base le dessin d'un fichier .drw, sous son nom (un dessin de même nom est remplacé)
+     * @return nom du dessin importé
+     */
+    public String importDrawing(Path file) throws SQLException, IOException {
+        MappedShapeStore store = MappedShapeStore.open(file);
+        Drawing drawing = new Drawing(store.getName());
+        drawing.replaceStore(store);
+        saveDrawing(drawing);
+        return drawing.getName();
+    }
+
+    /**
+     * Charge les formes d'un dessin page par page, sans tout garder en mémoire côté base
+     * Utilisable depuis un thread d'arrière-plan: les pages sont remises au listener dans
+     * l'ordre d'affichage et avec leurs clés, à lui de les ajouter au dessin (addSavedShapes,
+     * sur le thread FX).
+     * @return le dessin (nom, identifiant et clés réservées) sans ses formes
+     */
+    public Drawing streamDrawing(String drawingName, int pageSize, ShapePageListener listener) throws SQLException {
         if (connection == null) {
             throw new SQLException("Connexion à la base de données non disponible");
         }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Taille de page invalide: " + pageSize);
+        }
 
-        Drawing drawing = null;
-        String sqlDrawing = "SELECT * FROM drawings WHERE name = ?";
-        String sqlShapes = "SELECT * FROM shapes WHERE drawing_id = ?";
+        try (Connection read = openReadConnection()) {
+            SavedDrawing saved = findDrawing(read, drawingName);
+            if (saved == null) {
+                throw new SQLException("Dessin non trouvé: " + drawingName);
+            }
+            long drawingId = saved.id;
+            // Plus grande clé enregistrée: un chargement interrompu ne doit pas la réattribuer
+            long lastKey = queryLong(read, saved.mode == ShapeStorageMode.CHUNKS
+                    ? "SELECT COALESCE(MAX(last_key), 0) FROM shape_chunks WHERE drawing_id = ?"
+                    : "SELECT COALESCE(MAX(shape_key), 0) FROM shapes WHERE drawing_id = ?", drawingId);
 
-        try (PreparedStatement drawingStmt = connection.prepareStatement(sqlDrawing)) {
-            drawingStmt.setString(1, drawingName);
-            try (ResultSet drawingRs = drawingStmt.executeQuery()) {
-                if (drawingRs.next()) {
-                    long drawingId = drawingRs.getLong("id");
-                    drawing = new Drawing(drawingName);
-                    drawing.setId(drawingId);
-
-                    // Charger les formes associées
-                    try (PreparedStatement shapeStmt = connection.prepareStatement(sqlShapes)) {
-                        shapeStmt.setLong(1, drawingId);
-                        try (ResultSet shapesRs = shapeStmt.executeQuery()) {
-                            while (shapesRs.next()) {
-                                String shapeType = shapesRs.getString("shape_type");
-                                String shapeData = shapesRs.getString("shape_data");
-
-                                // Utiliser la factory pour créer la forme
-                                Shape shape = parseShapeFromString(shapeType, shapeData);
-                                if (shape != null) {
-                                    drawing.addShape(shape);
-                                }
-                            }
+            Drawing drawing = new Drawing(drawingName);
+            drawing.setId(drawingId);
+            drawing.reserveKeys(lastKey);
+            listener.onStart(drawingId, lastKey);
+            if (saved.mode == ShapeStorageMode.CHUNKS) {
+                streamShapeChunks(read, drawingId, pageSize, listener);
+            } else {
+                streamShapeRows(read, drawingId, pageSize, listener);
+            }
+            read.rollback();
+            return drawing;
+        }
+    }
+
+    /**
+     * Pages de lignes par plage de clés (clé > dernière lue): chaque requête reste courte
+     * Ce thread ne fait que copier les colonnes brutes; le décodage se fait en parallèle
+     */
+    private void streamShapeRows(Connection conn, long drawingId, int pageSize, ShapePageListener listener)
+            throws SQLException {
+        String sqlCount = "SELECT COUNT(*) FROM shapes WHERE drawing_id = ?";
+        String sqlPage = "SELECT shape_key, shape_type, shape_data, shape_blob FROM shapes "
+                + "WHERE drawing_id = ? AND shape_key > ? ORDER BY shape_key LIMIT ?";
+        long total = queryLong(conn, sqlCount, drawingId);
+        long lastKey = Long.MIN_VALUE;
+
+        try (PreparedStatement pageStmt = conn.prepareStatement(sqlPage);
+             ShapeDecodePipeline pipeline = new ShapeDecodePipeline(decodeParallelism, pageSize, total, listener)) {
+            while (true) {
+                long[] keys = new long[pageSize];
+                String[] types = new String[pageSize];
+                String[] texts = new String[pageSize];
+                byte[][] blobs = new byte[pageSize][];
+                int rows = 0;
+                pageStmt.setLong(1, drawingId);
+                pageStmt.setLong(2, lastKey);
+                pageStmt.setInt(3, pageSize);
+                try (ResultSet rs = pageStmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastKey = rs.getLong("shape_key");
+                        keys[rows] = lastKey;
+                        types[rows] = rs.getString("shape_type");
+                        texts[rows] = rs.getString("shape_data");
+                        blobs[rows] = rs.getBytes("shape_blob");
+                        rows++;
+                    }
+                }
+                if (rows == 0) {
+                    pipeline.finish();
+                    return;
+                }
+                int count = rows;
+                boolean more = pipeline.submit(() -> {
+                    List<Shape> shapes = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        Shape shape = ShapeCodec.decodeRow(types[i], texts[i], blobs[i]);
+                        if (shape != null) {
+                            shape.setKey(keys[i]);
+                            shapes.add(shape);
                         }
                     }
+                    return shapes;
+                }, count);
+                if (!more) {
+                    return;
+                }
+                // Page incomplète: c'était la dernière
+                if (rows < pageSize) {
+                    pipeline.finish();
+                    return;
                 }
             }
         }
+    }
 
-        if (drawing == null) {
-            throw new SQLException("Dessin non trouvé: " + drawingName);
+    /**
+     * Un bloc lu par requête, décompressé et décodé en parallèle de la lecture des suivants
+     */
+    private void streamShapeChunks(Connection conn, long drawingId, int pageSize, ShapePageListener listener)
+            throws SQLException {
+        String sqlCount = "SELECT COALESCE(SUM(shape_count), 0) FROM shape_chunks WHERE drawing_id = ?";
+        String sqlChunk = "SELECT chunk_index, shape_count, first_key, data FROM shape_chunks "
+                + "WHERE drawing_id = ? AND chunk_index > ? ORDER BY chunk_index LIMIT 1";
+        long total = queryLong(conn, sqlCount, drawingId);
+        int lastIndex = -1;
+
+        try (PreparedStatement chunkStmt = conn.prepareStatement(sqlChunk);
+             ShapeDecodePipeline pipeline = new ShapeDecodePipeline(decodeParallelism, pageSize, total, listener)) {
+            while (true) {
+                chunkStmt.setLong(1, drawingId);
+                chunkStmt.setInt(2, lastIndex);
+                byte[] data;
+                int shapeCount;
+                long firstKey;
+                try (ResultSet rs = chunkStmt.executeQuery()) {
+                    if (!rs.next()) break;
+                    lastIndex = rs.getInt("chunk_index");
+                    shapeCount = rs.getInt("shape_count");
+                    firstKey = rs.getLong("first_key");
+                    data = rs.getBytes("data");
+                }
+                boolean more = pipeline.submit(() -> {
+                    List<Shape> shapes = new ArrayList<>(shapeCount);
+                    ShapeCodec.decodeChunk(data, firstKey, shapes);
+                    return shapes;
+                }, shapeCount);
+                if (!more) {
+                    return;
+                }
+            }
+            pipeline.finish();
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Bloc de formes illisible: " + e.getMessage(), e);
         }
+    }
 
-        return drawing;
+    /**
+     * Dessin enregistré sous ce nom (le plus ancien si plusieurs portent le même nom)
+     */
+    private static final class SavedDrawing {
+        final long id;
+        final ShapeStorageMode mode;
+
+        SavedDrawing(long id, ShapeStorageMode mode) {
+            this.id = id;
+            this.mode = mode;
+        }
     }
 
+    private static SavedDrawing findDrawing(Connection conn, String name) throws SQLException {
+        String sql = "SELECT id, storage_mode FROM drawings WHERE name = ? ORDER BY id LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                ShapeStorageMode mode = ShapeStorageMode.CHUNKS.name().equals(rs.getString("storage_mode"))
+                        ? ShapeStorageMode.CHUNKS : ShapeStorageMode.ROWS;
+                return new SavedDrawing(rs.getLong("id"), mode);
+            }
+        }
+    }
 
+    private static long queryLong(Connection conn, String sql, long drawingId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, drawingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Nombre de formes envoyées par lot (executeBatch) lors de la sauvegarde
+     */
+    public void setSaveBatchSize(int saveBatchSize) {
+        if (saveBatchSize <= 0) {
+            throw new IllegalArgumentException("Taille de lot invalide: " + saveBatchSize);
+        }
+        this.saveBatchSize = saveBatchSize;
+    }
+
+    public int getSaveBatchSize() {
+        return saveBatchSize;
+    }
+
+    /**
+     * Mode de stockage des prochaines sauvegardes (ROWS pour rester lisible par les anciennes versions)
+     */
+    public void setStorageMode(ShapeStorageMode storageMode) {
+        this.storageMode = Objects.requireNonNull(storageMode, "storageMode");
+    }
+
+    public ShapeStorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Nombre de threads de décodage des formes au chargement
+     */
+    public void setDecodeParallelism(int decodeParallelism) {
+        if (decodeParallelism <= 0) {
+            throw new IllegalArgumentException("Parallélisme invalide: " + decodeParallelism);
+        }
+        this.decodeParallelism = decodeParallelism;
+    }
+
+    public int getDecodeParallelism() {
+        return decodeParallelism;
+    }
+
+    /**
+     * Débit de la dernière sauvegarde réussie, en formes par seconde
+     */
+    public double getLastSaveRowsPerSecond() {
+        return lastSaveRowsPerSecond;
+    }
 
+    /**
+     * Sauvegarde le dessin dans une seule transaction
+     * Si le dessin correspond à sa version enregistrée (même nom, même identifiant et même
+     * mode de stockage), seules les formes ajoutées, modifiées ou supprimées sont écrites;
+     * sinon le dessin du même nom est entièrement réécrit, sans créer de doublon.
+     * En cas d'erreur, rien n'est écrit et la prochaine sauvegarde sera complète.
+     */
     public void saveDrawing(Drawing drawing) throws SQLException {
         if (connection == null) {
             System.out.println("Base de données non disponible. Sauvegarde simulée pour: " + drawing.getName());
             return;
         }
 
-        String insertDrawing = "INSERT INTO drawings (name) VALUES (?)";
-        String getLastId = "SELECT last_insert_rowid()";
-        String insertShape = "INSERT INTO shapes (drawing_id, shape_type, shape_data) VALUES (?, ?, ?)";
+        writeLock.lock();
+        try {
+            SavedDrawing saved = findDrawing(connection, drawing.getName());
+            if (saved == null || saved.id != drawing.getId() || saved.mode != storageMode) {
+                drawing.requireFullSave();
+            }
+            DrawingChanges changes = drawing.takeChanges();
+            if (changes.isEmpty()) {
+                return;
+            }
+            try {
+                drawing.setId(saveChanges(drawing.getName(), changes));
+            } catch (StaleChangesException e) {
+                // La base a changé depuis la dernière sauvegarde: tout réécrire
+                drawing.requireFullSave();
+                changes = drawing.takeChanges();
+                try {
+                    drawing.setId(saveChanges(drawing.getName(), changes));
+                } catch (SQLException | RuntimeException retryError) {
+                    drawing.requireFullSave();
+                    throw retryError;
+                }
+            } catch (SQLException | RuntimeException e) {
+                drawing.requireFullSave();
+                throw e;
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Écrit les modifications capturées par Drawing.takeChanges dans une seule transaction
+     * Ne touche pas au dessin: utilisable depuis un autre thread avec une capture figée.
+     * Les écritures sont sérialisées (une seule transaction à la fois sur la connexion d'écriture).
+     * @return identifiant du dessin en base
+     * @throws StaleChangesException si une capture incrémentale ne correspond plus à la base
+     */
+    public long saveChanges(String drawingName, DrawingChanges changes) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Connexion à la base de données non disponible");
+        }
+        writeLock.lock();
+        try {
+            return writeChanges(drawingName, changes);
+        } finally {
+            unlockWrite();
+        }
+    }
 
+    private long writeChanges(String drawingName, DrawingChanges changes) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        long start = System.nanoTime();
+        long drawingId;
+        try {
+            connection.setAutoCommit(false);
+            SavedDrawing saved = findDrawing(connection, drawingName);
+            if (changes.isFull()) {
+                List<Shape> shapes = changes.getShapes();
+                if (changes.isPartial() && saved != null) {
+                    shapes = withUnloadedShapes(drawingName, saved, changes);
+                }
+                drawingId = saved != null ? resetDrawing(saved.id) : insertDrawing(drawingName);
+                if (storageMode == ShapeStorageMode.CHUNKS) {
+                    insertShapeChunks(drawingId, shapes, 0);
+                } else {
+                    upsertShapeRows(drawingId, shapes);
+                }
+            } else {
+                // Un changement de mode de stockage impose aussi de tout réécrire
+                if (saved == null || saved.id != changes.getDrawingId() || saved.mode != storageMode) {
+                    throw new StaleChangesException("Le dessin '" + drawingName + "' a changé en base");
+                }
+                drawingId = saved.id;
+                if (saved.mode == ShapeStorageMode.CHUNKS) {
+                    applyChunkChanges(drawingId, changes);
+                } else {
+                    deleteShapeRows(drawingId, changes.getDeletedKeys());
+                    upsertShapeRows(drawingId, changes.getShapes());
+                }
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        lastSaveRowsPerSecond = changes.size() / seconds;
+        Logger.getInstance().logAction("Sauvegarde", String.format("%s (%s): %d formes en %.0f ms (%.0f formes/s)",
+                drawingName, changes.isFull() ? "complète" : "incrémentale", changes.size(), seconds * 1000,
+                lastSaveRowsPerSecond));
+        return drawingId;
+    }
+
+    /**
+     * Formes d'un dessin chargé en partie, complétées par les formes enregistrées jamais chargées,
+     * à leur place dans l'ordre des clés (qui est l'ordre d'affichage)
+     */
+    private List<Shape> withUnloadedShapes(String drawingName, SavedDrawing saved, DrawingChanges changes)
+            throws SQLException {
+        if (saved.id != changes.getDrawingId()) {
+            // Rien ne relie le dessin à cette version: la réécrire effacerait ce qui n'a pas été chargé
+            throw new SQLException("Le dessin '" + drawingName
+                    + "' n'a été chargé qu'en partie: sauvegarde complète impossible, le recharger");
+        }
+        long from = changes.getUnloadedFromKey();
+        long to = changes.getUnloadedToKey();
+        List<Shape> unloaded = new ArrayList<>();
+        ShapePageListener collect = (page, loaded, total) -> {
+            for (Shape shape : page) {
+                if (shape.getKey() > from && shape.getKey() <= to) {
+                    unloaded.add(shape);
+                }
+            }
+            return true;
+        };
+        if (saved.mode == ShapeStorageMode.CHUNKS) {
+            streamShapeChunks(connection, saved.id, SHAPES_PER_CHUNK, collect);
+        } else {
+            streamShapeRows(connection, saved.id, SHAPES_PER_CHUNK, collect);
+        }
+        if (unloaded.isEmpty()) {
+            return changes.getShapes();
+        }
+
+        List<Shape> shapes = changes.getShapes();
+        List<Shape> merged = new ArrayList<>(shapes.size() + unloaded.size());
+        int i = 0;
+        for (Shape shape : unloaded) {
+            while (i < shapes.size() && shapes.get(i).getKey() < shape.getKey()) {
+                merged.add(shapes.get(i++));
+            }
+            merged.add(shape);
+        }
+        merged.addAll(shapes.subList(i, shapes.size()));
+        return merged;
+    }
+
+    private long insertDrawing(String drawingName) throws SQLException {
+        String insertDrawing = "INSERT INTO drawings (name, storage_mode) VALUES (?, ?)";
         try (PreparedStatement drawingStmt = connection.prepareStatement(insertDrawing)) {
-            drawingStmt.setString(1, drawing.getName());
+            drawingStmt.setString(1, drawingName);
+            drawingStmt.setString(2, storageMode.name());
             drawingStmt.executeUpdate();
         }
 
         // Récupération de l'ID généré
-        long drawingId;
         try (Statement stmt = connection.createStatement();
-             ResultSet keys = stmt.executeQuery(getLastId)) {
+             ResultSet keys = stmt.executeQuery("SELECT last_insert_rowid()")) {
             if (keys.next()) {
-                drawingId = keys.getLong(1);
-                drawing.setId(drawingId);
-            } else {
-                throw new SQLException("Impossible de récupérer l'ID du dessin");
+                return keys.getLong(1);
             }
+            throw new SQLException("Impossible de récupérer l'ID du dessin");
         }
+    }
 
-        // Insertion des formes associées
-        try (PreparedStatement shapeStmt = connection.prepareStatement(insertShape)) {
-            for (Shape shape : drawing.getShapes()) {
+    /**
+     * Vide un dessin existant avant de le réécrire entièrement
+     */
+    private long resetDrawing(long drawingId) throws SQLException {
+        try (PreparedStatement deleteRows = connection.prepareStatement("DELETE FROM shapes WHERE drawing_id = ?");
+             PreparedStatement deleteChunks = connection.prepareStatement("DELETE FROM shape_chunks WHERE drawing_id = ?");
+             PreparedStatement updateMode = connection.prepareStatement("UPDATE drawings SET storage_mode = ? WHERE id = ?")) {
+            deleteRows.setLong(1, drawingId);
+            deleteRows.executeUpdate();
+            deleteChunks.setLong(1, drawingId);
+            deleteChunks.executeUpdate();
+            updateMode.setString(1, storageMode.name());
+            updateMode.setLong(2, drawingId);
+            updateMode.executeUpdate();
+        }
+        return drawingId;
+    }
+
+    /**
+     * Une ligne par forme, insérée ou remplacée selon sa clé, par lots de saveBatchSize
+     */
+    private void upsertShapeRows(long drawingId, List<Shape> shapes) throws SQLException {
+        String upsertShape = "INSERT INTO shapes (drawing_id, shape_key, shape_type, shape_blob) VALUES (?, ?, ?, ?) "
+                + "ON CONFLICT (drawing_id, shape_key) DO UPDATE SET shape_type = excluded.shape_type, "
+                + "shape_data = NULL, shape_blob = excluded.shape_blob";
+        try (PreparedStatement shapeStmt = connection.prepareStatement(upsertShape)) {
+            int pending = 0;
+            for (Shape shape : shapes) {
                 shapeStmt.setLong(1, drawingId);
-                shapeStmt.setString(2, shape.getClass().getSimpleName());
-                shapeStmt.setString(3, shape.toStringRepresentation());
-                shapeStmt.executeUpdate();
+                shapeStmt.setLong(2, shape.getKey());
+                shapeStmt.setString(3, shape.getTypeName());
+                shapeStmt.setBytes(4, ShapeCodec.encode(shape));
+                shapeStmt.addBatch();
+                if (++pending == saveBatchSize) {
+                    shapeStmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                shapeStmt.executeBatch();
+            }
+        }
+    }
+
+    private void deleteShapeRows(long drawingId, long[] keys) throws SQLException {
+        if (keys.length == 0) return;
+        String deleteShape = "DELETE FROM shapes WHERE drawing_id = ? AND shape_key = ?";
+        try (PreparedStatement deleteStmt = connection.prepareStatement(deleteShape)) {
+            int pending = 0;
+            for (long key : keys) {
+                deleteStmt.setLong(1, drawingId);
+                deleteStmt.setLong(2, key);
+                deleteStmt.addBatch();
+                if (++pending == saveBatchSize) {
+                    deleteStmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                deleteStmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Blocs compressés de SHAPES_PER_CHUNK formes au plus, dans l'ordre d'affichage
+     */
+    private void insertShapeChunks(long drawingId, List<Shape> shapes, int firstIndex) throws SQLException {
+        String insertChunk = "INSERT INTO shape_chunks (drawing_id, chunk_index, shape_count, first_key, last_key, data) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement chunkStmt = connection.prepareStatement(insertChunk)) {
+            int index = firstIndex;
+            for (int from = 0; from < shapes.size(); from += SHAPES_PER_CHUNK) {
+                int to = Math.min(from + SHAPES_PER_CHUNK, shapes.size());
+                chunkStmt.setLong(1, drawingId);
+                chunkStmt.setInt(2, index++);
+                chunkStmt.setInt(3, to - from);
+                chunkStmt.setLong(4, shapes.get(from).getKey());
+                chunkStmt.setLong(5, shapes.get(to - 1).getKey());
+                chunkStmt.setBytes(6, ShapeCodec.encodeChunk(shapes, from, to));
+                chunkStmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Bloc existant relu pour une sauvegarde incrémentale
+     */
+    private static final class StoredChunk {
+        final long rowId;
+        final int index;
+        final long firstKey;
+        final long lastKey;
+        final int count;
+        final byte[] data;
+
+        StoredChunk(ResultSet rs) throws SQLException {
+            rowId = rs.getLong("id");
+            index = rs.getInt("chunk_index");
+            firstKey = rs.getLong("first_key");
+            lastKey = rs.getLong("last_key");
+            count = rs.getInt("shape_count");
+            data = rs.getBytes("data");
+        }
+    }
+
+    /**
+     * Sauvegarde incrémentale en mode CHUNKS: seuls les blocs contenant une forme modifiée ou
+     * supprimée sont réécrits; les nouvelles formes (clés plus grandes que toutes les clés
+     * enregistrées) complètent le dernier bloc puis forment de nouveaux blocs.
+     */
+    private void applyChunkChanges(long drawingId, DrawingChanges changes) throws SQLException {
+        Map<Long, Shape> replaced = new HashMap<>();
+        List<Shape> appended = new ArrayList<>();
+        for (Shape shape : changes.getShapes()) {
+            if (shape.getKey() <= changes.getPreviousKeyLimit()) {
+                replaced.put(shape.getKey(), shape);
+            } else {
+                appended.add(shape);
+            }
+        }
+        Set<Long> removed = new HashSet<>();
+        for (long key : changes.getDeletedKeys()) {
+            removed.add(key);
+        }
+
+        String sqlColumns = "SELECT id, chunk_index, first_key, last_key, shape_count, data FROM shape_chunks ";
+        String sqlByKey = sqlColumns + "WHERE drawing_id = ? AND first_key <= ? AND last_key >= ? LIMIT 1";
+        String sqlLast = sqlColumns + "WHERE drawing_id = ? ORDER BY chunk_index DESC LIMIT 1";
+
+        // Blocs touchés, dans l'ordre des blocs
+        TreeMap<Integer, StoredChunk> touched = new TreeMap<>();
+        StoredChunk last;
+        Set<Long> keys = new TreeSet<>(replaced.keySet());
+        keys.addAll(removed);
+        try (PreparedStatement byKey = connection.prepareStatement(sqlByKey);
+             PreparedStatement lastStmt = connection.prepareStatement(sqlLast)) {
+            for (long key : keys) {
+                if (covered(touched, key)) continue;
+                byKey.setLong(1, drawingId);
+                byKey.setLong(2, key);
+                byKey.setLong(3, key);
+                try (ResultSet rs = byKey.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new StaleChangesException("Forme " + key + " absente des blocs enregistrés");
+                    }
+                    StoredChunk chunk = new StoredChunk(rs);
+                    touched.put(chunk.index, chunk);
+                }
+            }
+            lastStmt.setLong(1, drawingId);
+            try (ResultSet rs = lastStmt.executeQuery()) {
+                last = rs.next() ? new StoredChunk(rs) : null;
             }
         }
+        if (last != null && !appended.isEmpty() && last.count < SHAPES_PER_CHUNK) {
+            touched.putIfAbsent(last.index, last);
+        }
+
+        // Formes conservées de chaque bloc touché; chaque clé modifiée ou supprimée doit s'y trouver
+        Map<StoredChunk, List<Shape>> keptByChunk = new LinkedHashMap<>();
+        int found = 0;
+        for (StoredChunk chunk : touched.values()) {
+            List<Shape> decoded = new ArrayList<>(chunk.count);
+            try {
+                ShapeCodec.decodeChunk(chunk.data, chunk.firstKey, decoded);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Bloc de formes illisible: " + e.getMessage(), e);
+            }
+            List<Shape> kept = new ArrayList<>(decoded.size());
+            for (Shape shape : decoded) {
+                if (keys.contains(shape.getKey())) {
+                    found++;
+                }
+                if (removed.contains(shape.getKey())) continue;
+                kept.add(replaced.getOrDefault(shape.getKey(), shape));
+            }
+            keptByChunk.put(chunk, kept);
+        }
+        if (found != keys.size()) {
+            // Le bloc couvre encore la clé mais la forme a été supprimée par une autre sauvegarde
+            throw new StaleChangesException("Formes absentes des blocs enregistrés");
+        }
+
+        String updateChunk = "UPDATE shape_chunks SET shape_count = ?, first_key = ?, last_key = ?, data = ? WHERE id = ?";
+        String deleteChunk = "DELETE FROM shape_chunks WHERE id = ?";
+        int nextAppended = 0;
+        try (PreparedStatement updateStmt = connection.prepareStatement(updateChunk);
+             PreparedStatement deleteStmt = connection.prepareStatement(deleteChunk)) {
+            for (Map.Entry<StoredChunk, List<Shape>> entry : keptByChunk.entrySet()) {
+                StoredChunk chunk = entry.getKey();
+                List<Shape> kept = entry.getValue();
+                if (last != null && chunk.index == last.index) {
+                    while (nextAppended < appended.size() && kept.size() < SHAPES_PER_CHUNK) {
+                        kept.add(appended.get(nextAppended++));
+                    }
+                }
+
+                if (kept.isEmpty()) {
+                    deleteStmt.setLong(1, chunk.rowId);
+                    deleteStmt.executeUpdate();
+                } else {
+                    updateStmt.setInt(1, kept.size());
+                    updateStmt.setLong(2, kept.get(0).getKey());
+                    updateStmt.setLong(3, kept.get(kept.size() - 1).getKey());
+                    updateStmt.setBytes(4, ShapeCodec.encodeChunk(kept, 0, kept.size()));
+                    updateStmt.setLong(5, chunk.rowId);
+                    updateStmt.executeUpdate();
+                }
+            }
+        }
+
+        if (nextAppended < appended.size()) {
+            insertShapeChunks(drawingId, appended.subList(nextAppended, appended.size()),
+                    last == null ? 0 : last.index + 1);
+        }
     }
 
+    private static boolean covered(TreeMap<Integer, StoredChunk> chunks, long key) {
+        for (StoredChunk chunk : chunks.values()) {
+            if (chunk.firstKey <= key && key <= chunk.lastKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de l'annulation de la transaction: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ajoute une ligne au journal en base sans attendre une écriture en cours sur un autre thread:
+     * la ligne est alors insérée après la validation de cette écriture, hors de sa transaction
+     */
     public void insertLog(String timestamp, String level, String message) throws SQLException {
         if (connection == null) {
             // Base de données non disponible, ne pas lever d'exception
             return;
         }
 
+        pendingLogs.add(new String[] {timestamp, level, message});
+        if (writeLock.tryLock()) {
+            try {
+                flushLogs();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Insère les lignes de journal en attente, sauf au milieu d'une transaction (writeLock tenu)
+     */
+    private void flushLogs() throws SQLException {
+        if (pendingLogs.isEmpty() || !connection.getAutoCommit()) {
+            return;
+        }
         String sql = "INSERT INTO logs (timestamp, level, message) VALUES (?, ?, ?)";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, timestamp);
-            stmt.setString(2, level);
-            stmt.setString(3, message);
-            stmt.executeUpdate();
+            String[] row;
+            while ((row = pendingLogs.poll()) != null) {
+                stmt.setString(1, row[0]);
+                stmt.setString(2, row[1]);
+                stmt.setString(3, row[2]);
+                stmt.executeUpdate();
+            }
         }
     }
 
+    /**
+     * Libère la connexion d'écriture après avoir inséré les lignes de journal reçues entre-temps
+     */
+    private void unlockWrite() {
+        do {
+            try {
+                flushLogs();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de l'écriture du journal: " + e.getMessage());
+            }
+            writeLock.unlock();
+            // Une ligne arrivée juste avant la libération n'a pas pu prendre le verrou
+        } while (!pendingLogs.isEmpty() && writeLock.tryLock());
+    }
+
     public List<String> getDrawingNames() throws SQLException {
         List<String> names = new ArrayList<>();
 
@@ -193,7 +1035,8 @@ public class DatabaseManager {
 
         String sql = "SELECT name FROM drawings ORDER BY created_date DESC";
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection read = openReadConnection();
+             Statement stmt = read.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 names.add(rs.getString("name"));
@@ -202,93 +1045,24 @@ public class DatabaseManager {
         return names;
     }
 
-    /**
-     * Parse une forme depuis sa représentation string en utilisant ShapeFactory
-     * Format attendu: "Rectangle[x=10.00,y=20.00,width=100.00,height=50.00,color=0xff0000ff,strokeWidth=2.00]"
-     */
-    private Shape parseShapeFromString(String shapeType, String shapeData) {
-        try {
-            // Extraire les valeurs entre crochets
-            int start = shapeData.indexOf('[');
-            int end = shapeData.indexOf(']');
-            if (start == -1 || end == -1) return null;
-
-            String params = shapeData.substring(start + 1, end);
-            String[] pairs = params.split(",");
-
-            double x = 0, y = 0, width = 0, height = 0, radius = 0, endX = 0, endY = 0;
-            javafx.scene.paint.Color color = javafx.scene.paint.Color.BLACK;
-            double strokeWidth = 2.0;
-
-            for (String pair : pairs) {
-                String[] keyValue = pair.split("=");
-                if (keyValue.length != 2) continue;
-
-                String key = keyValue[0].trim();
-                String value = keyValue[1].trim();
-
-                switch (key) {
-                    case "x":
-                    case "startX":
-                        x = Double.parseDouble(value);
-                        break;
-                    case "y":
-                    case "startY":
-                        y = Double.parseDouble(value);
-                        break;
-                    case "width":
-                        width = Double.parseDouble(value);
-                        break;
-                    case "height":
-                        height = Double.parseDouble(value);
-                        break;
-                    case "radius":
-                        radius = Double.parseDouble(value);
-                        break;
-                    case "endX":
-                        endX = Double.parseDouble(value);
-                        break;
-                    case "endY":
-                        endY = Double.parseDouble(value);
-                        break;
-                    case "color":
-                        color = javafx.scene.paint.Color.web(value);
-                        break;
-                    case "strokeWidth":
-                        strokeWidth = Double.parseDouble(value);
-                        break;
-                }
-            }
-
-            // Utiliser ShapeFactoryManager pour créer la forme selon le type
-            switch (shapeType) {
-                case "Rectangle":
-                    double[] rectParams = {x, y, width, height};
-                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.RECTANGLE, rectParams, color, strokeWidth);
-                case "Circle":
-                    double[] circleParams = {x, y, radius};
-                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.CIRCLE, circleParams, color, strokeWidth);
-                case "Line":
-                    double[] lineParams = {x, y, endX, endY};
-                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.LINE, lineParams, color, strokeWidth);
-                default:
-                    System.err.println("Type de forme non reconnu: " + shapeType);
-                    return null;
-            }
-
-        } catch (Exception e) {
-            System.err.println("Erreur lors du parsing de la forme: " + e.getMessage());
-            return null;
-        }
-    }
-
     public void close() {
+        if (connection == null) {
+            return;
+        }
+        writeLock.lock();
         try {
-            if (connection != null && !connection.isClosed()) {
+            if (!connection.isClosed()) {
+                flushLogs();
+                // Met à jour les statistiques utiles au planificateur (rapide si rien n'a changé)
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA optimize");
+                }
                 connection.close();
             }
         } catch (SQLException e) {
             System.err.println("Erreur lors de la fermeture de la base de données: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -0,0 +1,338 @@
+package database;
+
+import factory.ShapeFactoryManager;
+import model.Circle;
+import model.Line;
+import model.Rectangle;
+import model.Shape;
+import model.StyleTable;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodage binaire compact et versionné des formes
+ * Format d'une valeur: [version][enregistrement]
+ * Enregistrement: [type][coordonnées][couleur ARGB int][épaisseur]
+ * Les coordonnées et l'épaisseur sont des float quand la conversion est exacte
+ * (bit FLOAT_FLAG du type), des double sinon: aucune perte de précision.
+ * Un bloc (chunk) regroupe de nombreux enregistrements compressés:
+ * [version][nombre int][clé long, enregistrement]... passé dans Deflate.
+ * Les blocs de version 1 n'ont pas de clés: elles se suivent à partir de la première.
+ */
+public final class ShapeCodec {
+    public static final byte VERSION = 1;
+    public static final byte CHUNK_VERSION = 2;
+
+    private static final byte RECTANGLE = 0;
+    private static final byte CIRCLE = 1;
+    private static final byte LINE = 2;
+    private static final int FLOAT_FLAG = 0x80;
+
+    // type + 4 coordonnées double + couleur + épaisseur double
+    public static final int MAX_RECORD_SIZE = 1 + 4 * 8 + 4 + 8;
+
+    private ShapeCodec() {
+    }
+
+    /**
+     * Valeur complète (version + enregistrement), pour une colonne BLOB
+     */
+    public static byte[] encode(Shape shape) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + MAX_RECORD_SIZE);
+        buffer.put(VERSION);
+        writeRecord(shape, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException si la version ou le contenu est invalide
+     */
+    public static Shape decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        checkVersion(buffer.get());
+        return readRecord(buffer);
+    }
+
+    public static void checkVersion(byte version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Version d'encodage non supportée: " + version);
+        }
+    }
+
+    /**
+     * Écrit un enregistrement sans en-tête de version (pour les conteneurs qui portent leur propre version)
+     */
+    public static void writeRecord(Shape shape, ByteBuffer buffer) {
+        StyleTable styles = StyleTable.getInstance();
+        double c0, c1, c2, c3 = 0;
+        int count;
+        byte type;
+        if (shape instanceof Rectangle) {
+            Rectangle r = (Rectangle) shape;
+            type = RECTANGLE;
+            c0 = r.getX();
+            c1 = r.getY();
+            c2 = r.getWidth();
+            c3 = r.getHeight();
+            count = 4;
+        } else if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            type = CIRCLE;
+            c0 = c.getX();
+            c1 = c.getY();
+            c2 = c.getRadius();
+            count = 3;
+        } else if (shape instanceof Line) {
+            Line l = (Line) shape;
+            type = LINE;
+            c0 = l.getX();
+            c1 = l.getY();
+            c2 = l.getEndX();
+            c3 = l.getEndY();
+            count = 4;
+        } else {
+            throw new IllegalArgumentException("Type de forme non supporté: " + shape.getTypeName());
+        }
+        double strokeWidth = styles.getStrokeWidth(shape.getStyleId());
+
+        boolean packed = fitsFloat(c0) && fitsFloat(c1) && fitsFloat(c2) && fitsFloat(c3) && fitsFloat(strokeWidth);
+        buffer.put((byte) (packed ? type | FLOAT_FLAG : type));
+        putValue(buffer, c0, packed);
+        putValue(buffer, c1, packed);
+        putValue(buffer, c2, packed);
+        if (count == 4) {
+            putValue(buffer, c3, packed);
+        }
+        buffer.putInt(styles.getArgb(shape.getStyleId()));
+        putValue(buffer, strokeWidth, packed);
+    }
+
+    /**
+     * Lit un enregistrement écrit par writeRecord
+     * @throws IllegalArgumentException si l'enregistrement est tronqué ou de type inconnu
+     */
+    public static Shape readRecord(ByteBuffer buffer) {
+        try {
+            int tag = buffer.get();
+            boolean packed = (tag & FLOAT_FLAG) != 0;
+            byte type = (byte) (tag & ~FLOAT_FLAG);
+            ShapeFactoryManager.ShapeType shapeType;
+            double[] params;
+            switch (type) {
+                case RECTANGLE:
+                    shapeType = ShapeFactoryManager.ShapeType.RECTANGLE;
+                    params = new double[4];
+                    break;
+                case CIRCLE:
+                    shapeType = ShapeFactoryManager.ShapeType.CIRCLE;
+                    params = new double[3];
+                    break;
+                case LINE:
+                    shapeType = ShapeFactoryManager.ShapeType.LINE;
+                    params = new double[4];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Type d'enregistrement inconnu: " + type);
+            }
+            for (int i = 0; i < params.length; i++) {
+                params[i] = getValue(buffer, packed);
+            }
+            int argb = buffer.getInt();
+            double strokeWidth = getValue(buffer, packed);
+
+            StyleTable styles = StyleTable.getInstance();
+            int styleId = styles.intern(styles.colorOfArgb(argb), strokeWidth);
+            return ShapeFactoryManager.createShape(shapeType, params, styleId);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Enregistrement de forme tronqué", e);
+        }
+    }
+
+    /**
+     * Encode et compresse les formes [from, to) en un seul bloc, avec leurs clés
+     */
+    public static byte[] encodeChunk(List<Shape> shapes, int from, int to) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + (to - from) * (8 + MAX_RECORD_SIZE));
+        buffer.put(CHUNK_VERSION);
+        buffer.putInt(to - from);
+        for (int i = from; i < to; i++) {
+            Shape shape = shapes.get(i);
+            buffer.putLong(shape.getKey());
+            writeRecord(shape, buffer);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(buffer.array(), 0, buffer.position());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.position() / 2);
+            byte[] block = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(block);
+                out.write(block, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Décompresse un bloc et ajoute ses formes, dans l'ordre et avec leurs clés, à la liste
+     * @param firstKey clé de la première forme (blocs de version 1 sans clés)
+     * @throws IllegalArgumentException si le bloc est corrompu ou d'une version inconnue
+     */
+    public static void decodeChunk(byte[] data, long firstKey, List<Shape> out) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(data.length * 3);
+            byte[] block = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(block);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Bloc de formes tronqué");
+                }
+                raw.write(block, 0, n);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(raw.toByteArray());
+            byte version = buffer.get();
+            if (version != VERSION && version != CHUNK_VERSION) {
+                throw new IllegalArgumentException("Version de bloc non supportée: " + version);
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                long key = version == CHUNK_VERSION ? buffer.getLong() : firstKey + i;
+                Shape shape = readRecord(buffer);
+                shape.setKey(key);
+                out.add(shape);
+            }
+        } catch (DataFormatException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Bloc de formes corrompu", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Forme d'une ligne de la table shapes: format binaire si présent, texte sinon (anciennes bases)
+     * @return null si la ligne est illisible (message sur la sortie d'erreur)
+     */
+    public static Shape decodeRow(String shapeType, String shapeData, byte[] blob) {
+        if (blob != null) {
+            try {
+                return ShapeCodec.decode(blob);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Erreur lors du décodage de la forme: " + e.getMessage());
+                return null;
+            }
+        }
+        return parseText(shapeType, shapeData);
+    }
+
+    /**
+     * Parse une forme depuis sa représentation string (ancien format texte)
+     * Format attendu: "Rectangle[x=10.00,y=20.00,width=100.00,height=50.00,color=0xff0000ff,strokeWidth=2.00]"
+     */
+    public static Shape parseText(String shapeType, String shapeData) {
+        try {
+            // Extraire les valeurs entre crochets
+            int start = shapeData.indexOf('[');
+            int end = shapeData.indexOf(']');
+            if (start == -1 || end == -1) return null;
+
+            String params = shapeData.substring(start + 1, end);
+            String[] pairs = params.split(",");
+
+            double x = 0, y = 0, width = 0, height = 0, radius = 0, endX = 0, endY = 0;
+            javafx.scene.paint.Color color = javafx.scene.paint.Color.BLACK;
+            double strokeWidth = 2.0;
+            StyleTable styles = StyleTable.getInstance();
+
+            for (String pair : pairs) {
+                String[] keyValue = pair.split("=");
+                if (keyValue.length != 2) continue;
+
+                String key = keyValue[0].trim();
+                String value = keyValue[1].trim();
+
+                switch (key) {
+                    case "x":
+                    case "startX":
+                        x = Double.parseDouble(value);
+                        break;
+                    case "y":
+                    case "startY":
+                        y = Double.parseDouble(value);
+                        break;
+                    case "width":
+                        width = Double.parseDouble(value);
+                        break;
+                    case "height":
+                        height = Double.parseDouble(value);
+                        break;
+                    case "radius":
+                        radius = Double.parseDouble(value);
+                        break;
+                    case "endX":
+                        endX = Double.parseDouble(value);
+                        break;
+                    case "endY":
+                        endY = Double.parseDouble(value);
+                        break;
+                    case "color":
+                        // Une seule instance de Color par valeur distincte
+                        color = styles.parseColor(value);
+                        break;
+                    case "strokeWidth":
+                        strokeWidth = Double.parseDouble(value);
+                        break;
+                }
+            }
+
+            // Utiliser ShapeFactoryManager pour créer la forme selon le type
+            int styleId = styles.intern(color, strokeWidth);
+            switch (shapeType) {
+                case "Rectangle":
+                    double[] rectParams = {x, y, width, height};
+                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.RECTANGLE, rectParams, styleId);
+                case "Circle":
+                    double[] circleParams = {x, y, radius};
+                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.CIRCLE, circleParams, styleId);
+                case "Line":
+                    double[] lineParams = {x, y, endX, endY};
+                    return ShapeFactoryManager.createShape(ShapeFactoryManager.ShapeType.LINE, lineParams, styleId);
+                default:
+                    System.err.println("Type de forme non reconnu: " + shapeType);
+                    return null;
+            }
+
+        } catch (Exception e) {
+            System.err.println("Erreur lors du parsing de la forme: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean fitsFloat(double value) {
+        return (double) (float) value == value;
+    }
+
+    private static void putValue(ByteBuffer buffer, double value, boolean packed) {
+        if (packed) {
+            buffer.putFloat((float) value);
+        } else {
+            buffer.putDouble(value);
+        }
+    }
+
+    private static double getValue(ByteBuffer buffer, boolean packed) {
+        return packed ? buffer.getFloat() : buffer.getDouble();
+    }
+}
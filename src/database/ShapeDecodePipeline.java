@@ -0,0 +1,131 @@
+package database;
+
+import model.Shape;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Décodage parallèle des formes pendant un chargement
+ * Le thread qui parcourt le curseur JDBC soumet des lots bruts (lignes ou blocs);
+ * un pool de décodeurs les transforme en formes pendant que la lecture continue.
+ * Les lots sont remis au listener dans l'ordre de soumission: l'ordre d'affichage
+ * est conservé quel que soit l'ordre de fin des décodeurs.
+ */
+public final class ShapeDecodePipeline implements AutoCloseable {
+    // Lots en vol par décodeur avant de bloquer la lecture (limite la mémoire)
+    private static final int IN_FLIGHT_PER_WORKER = 2;
+
+    private static final class Batch {
+        final CompletableFuture<List<Shape>> shapes;
+        final int rows;
+
+        Batch(CompletableFuture<List<Shape>> shapes, int rows) {
+            this.shapes = shapes;
+            this.rows = rows;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+    private final int maxInFlight;
+    private final int pageSize;
+    private final long total;
+    private final ShapePageListener listener;
+
+    private List<Shape> page = new ArrayList<>();
+    private long loaded;
+    private boolean stopped;
+
+    /**
+     * @param parallelism nombre de décodeurs
+     * @param pageSize taille minimale des pages remises (sauf la dernière)
+     * @param total nombre total de lignes attendues, pour la progression
+     */
+    public ShapeDecodePipeline(int parallelism, int pageSize, long total, ShapePageListener listener) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallélisme invalide: " + parallelism);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = parallelism * IN_FLIGHT_PER_WORKER;
+        this.pageSize = pageSize;
+        this.total = total;
+        this.listener = listener;
+    }
+
+    /**
+     * Soumet un lot au décodage et remet les lots déjà prêts
+     * Bloque si trop de lots sont en attente de décodage
+     * @param rows nombre de lignes du lot, pour la progression
+     * @return false si le listener a interrompu le chargement
+     */
+    public boolean submit(Supplier<List<Shape>> decoder, int rows) {
+        if (stopped) return false;
+        inFlight.add(new Batch(CompletableFuture.supplyAsync(decoder, pool), rows));
+        while (!inFlight.isEmpty() && (inFlight.size() > maxInFlight || inFlight.peek().shapes.isDone())) {
+            if (!deliver(inFlight.poll())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Attend la fin des décodages et remet la dernière page
+     * @return false si le listener a interrompu le chargement
+     */
+    public boolean finish() {
+        while (!stopped && !inFlight.isEmpty()) {
+            if (!deliver(inFlight.poll())) return false;
+        }
+        if (stopped) return false;
+        if (!page.isEmpty()) {
+            return flush();
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException si le décodage du lot a échoué
+     */
+    private boolean deliver(Batch batch) {
+        List<Shape> shapes;
+        try {
+            shapes = batch.shapes.join();
+        } catch (CompletionException e) {
+            stopped = true;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        loaded += batch.rows;
+        if (page.isEmpty()) {
+            page = shapes;
+        } else {
+            page.addAll(shapes);
+        }
+        return page.size() < pageSize || flush();
+    }
+
+    private boolean flush() {
+        List<Shape> full = page;
+        page = new ArrayList<>();
+        if (!listener.onPage(full, loaded, total)) {
+            stopped = true;
+        }
+        return !stopped;
+    }
+
+    @Override
+    public void close() {
+        // Abandonner les décodages restants (chargement interrompu ou en erreur)
+        for (Batch batch : inFlight) {
+            batch.shapes.cancel(false);
+        }
+        inFlight.clear();
+        pool.shutdownNow();
+    }
+}
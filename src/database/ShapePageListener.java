@@ -0,0 +1,26 @@
+package database;
+
+import model.Shape;
+import java.util.List;
+
+/**
+ * Reçoit les formes d'un dessin page par page pendant un chargement progressif
+ */
+@FunctionalInterface
+public interface ShapePageListener {
+    /**
+     * Appelé une fois le dessin trouvé, avant la première page
+     * @param lastKey plus grande clé enregistrée: les formes ajoutées ensuite doivent la dépasser
+     *                (Drawing.reserveKeys), même si le chargement est interrompu
+     */
+    default void onStart(long drawingId, long lastKey) {
+    }
+
+    /**
+     * @param page formes de la page, dans l'ordre d'affichage (liste propre à l'appel)
+     * @param loaded nombre de formes lues jusqu'ici
+     * @param total nombre total de formes du dessin
+     * @return false pour interrompre le chargement
+     */
+    boolean onPage(List<Shape> page, long loaded, long total);
+}
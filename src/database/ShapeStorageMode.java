@@ -0,0 +1,11 @@
+package database;
+
+/**
+ * Mode de stockage des formes d'un dessin
+ */
+public enum ShapeStorageMode {
+    // Une ligne par forme dans la table shapes (format historique)
+    ROWS,
+    // Quelques gros blocs compressés dans la table shape_chunks
+    CHUNKS
+}
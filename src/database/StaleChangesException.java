@@ -0,0 +1,15 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * Sauvegarde incrémentale refusée: la base ne correspond plus à la version
+ * à partir de laquelle les modifications ont été suivies (une sauvegarde complète s'impose)
+ */
+public class StaleChangesException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public StaleChangesException(String message) {
+        super(message);
+    }
+}
@@ -2,7 +2,6 @@ package factory;
 
 import model.Circle;
 import model.Shape;
-import javafx.scene.paint.Color;
 
 /**
  * Factory concrète pour créer des cercles
@@ -10,12 +9,12 @@ import javafx.scene.paint.Color;
 public class CircleFactory extends ShapeFactory {
     
     @Override
-    public Shape createShape(double[] parameters, Color color, double strokeWidth) {
+    public Shape createShape(double[] parameters, int styleId) {
         if (!validateParameters(parameters)) {
             throw new IllegalArgumentException("Paramètres insuffisants pour créer un cercle. Attendu: [x, y, radius]");
         }
         
-        return new Circle(parameters[0], parameters[1], parameters[2], color, strokeWidth);
+        return new Circle(parameters[0], parameters[1], parameters[2], styleId);
     }
 
     @Override
@@ -2,7 +2,6 @@ package factory;
 
 import model.Rectangle;
 import model.Shape;
-import javafx.scene.paint.Color;
 
 /**
  * Factory concrète pour créer des rectangles
@@ -10,12 +9,12 @@ import javafx.scene.paint.Color;
 public class RectangleFactory extends ShapeFactory {
     
     @Override
-    public Shape createShape(double[] parameters, Color color, double strokeWidth) {
+    public Shape createShape(double[] parameters, int styleId) {
         if (!validateParameters(parameters)) {
             throw new IllegalArgumentException("Paramètres insuffisants pour créer un rectangle. Attendu: [x, y, width, height]");
         }
         
-        return new Rectangle(parameters[0], parameters[1], parameters[2], parameters[3], color, strokeWidth);
+        return new Rectangle(parameters[0], parameters[1], parameters[2], parameters[3], styleId);
     }
 
     @Override
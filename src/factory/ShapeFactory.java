@@ -1,6 +1,7 @@
 package factory;
 
 import model.Shape;
+import model.StyleTable;
 import javafx.scene.paint.Color;
 
 /**
@@ -10,9 +11,16 @@ import javafx.scene.paint.Color;
 public abstract class ShapeFactory {
 
     /**
-     * Méthode factory abstraite pour créer une forme
+     * Méthode factory abstraite pour créer une forme avec un style de la StyleTable
      */
-    public abstract Shape createShape(double[] parameters, Color color, double strokeWidth);
+    public abstract Shape createShape(double[] parameters, int styleId);
+
+    /**
+     * Crée une forme en internalisant d'abord son style
+     */
+    public Shape createShape(double[] parameters, Color color, double strokeWidth) {
+        return createShape(parameters, StyleTable.getInstance().intern(color, strokeWidth));
+    }
 
 
     /**
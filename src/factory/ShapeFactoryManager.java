@@ -1,6 +1,7 @@
 package factory;
 
 import model.Shape;
+import model.StyleTable;
 import javafx.scene.paint.Color;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,12 +29,20 @@ public class ShapeFactoryManager {
      * Crée une forme en utilisant la factory appropriée
      */
     public static Shape createShape(ShapeType type, double[] parameters, Color color, double strokeWidth) {
+        return createShape(type, parameters, StyleTable.getInstance().intern(color, strokeWidth));
+    }
+    
+    /**
+     * Crée une forme avec un style déjà internalisé dans la StyleTable
+     * Les formes de même style partagent alors la même couleur
+     */
+    public static Shape createShape(ShapeType type, double[] parameters, int styleId) {
         ShapeFactory factory = factories.get(type);
         if (factory == null) {
             throw new IllegalArgumentException("Type de forme non supporté: " + type);
         }
         
-        return factory.createShape(parameters, color, strokeWidth);
+        return factory.createShape(parameters, styleId);
     }
 
 }
@@ -1,5 +1,6 @@
 package model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
@@ -10,30 +11,48 @@ public class Circle extends Shape {
     private double radius;
     
     public Circle(double x, double y, double radius, Color color, double strokeWidth) {
-        super(x, y, color, strokeWidth);
+        this(x, y, radius, StyleTable.getInstance().intern(color, strokeWidth));
+    }
+    
+    public Circle(double x, double y, double radius, int styleId) {
+        super(x, y, styleId);
         this.radius = radius;
     }
     
     @Override
     public void draw(GraphicsContext gc) {
-        gc.setStroke(color);
-        gc.setLineWidth(strokeWidth);
+        gc.setStroke(getColor());
+        gc.setLineWidth(getStrokeWidth());
         gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
     }
     
     @Override
     public boolean contains(double pointX, double pointY) {
-        double distance = Math.sqrt(Math.pow(pointX - x, 2) + Math.pow(pointY - y, 2));
-        return distance <= radius;
+        // Rejet rapide par le rectangle englobant avant le test exact
+        if (!boundsContain(pointX, pointY, 0)) return false;
+        double dx = pointX - x;
+        double dy = pointY - y;
+        return dx * dx + dy * dy <= radius * radius;
+    }
+    
+    @Override
+    protected Rectangle2D computeBounds() {
+        double extent = radius + getStrokeWidth() / 2 + AA_MARGIN;
+        return new Rectangle2D(x - extent, y - extent, 2 * extent, 2 * extent);
+    }
+    
+    @Override
+    public String getTypeName() {
+        return "Circle";
     }
     
     @Override
     public String toStringRepresentation() {
         return String.format("Circle[x=%.2f,y=%.2f,radius=%.2f,color=%s,strokeWidth=%.2f]",
-                x, y, radius, color.toString(), strokeWidth);
+                x, y, radius, getColor().toString(), getStrokeWidth());
     }
     
     // Getters et setters
     public double getRadius() { return radius; }
-    public void setRadius(double radius) { this.radius = radius; }
+    public void setRadius(double radius) { this.radius = radius; invalidateBounds(); }
 }
@@ -0,0 +1,34 @@
+package model;
+
+/**
+ * Écouteur qui accumule les événements et les transmet fusionnés en un seul
+ * au moment choisi par le consommateur (fin d'image, minuterie d'autosauvegarde...)
+ */
+public class CoalescingDrawingListener implements DrawingListener {
+    private final DrawingListener delegate;
+    private DrawingEvent pending;
+
+    public CoalescingDrawingListener(DrawingListener delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void drawingChanged(DrawingEvent event) {
+        pending = pending == null ? event : pending.mergeWith(event);
+    }
+
+    public boolean hasPending() {
+        return pending != null;
+    }
+
+    /**
+     * Transmet l'événement fusionné au délégué s'il y en a un
+     */
+    public void flush() {
+        DrawingEvent event = pending;
+        pending = null;
+        if (event != null) {
+            delegate.drawingChanged(event);
+        }
+    }
+}
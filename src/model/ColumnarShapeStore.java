@@ -0,0 +1,553 @@
+package model;
+
+import javafx.geometry.Rectangle2D;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Stockage compact des formes en colonnes de primitives (structure de tableaux)
+ * Une forme occupe environ 70 octets au lieu de plusieurs objets (forme,
+ * Rectangle2D, entrée du R-tree). L'index spatial est un R-tree compact (tri STR)
+ * sur les ids, reconstruit par lots; les lignes ajoutées depuis la dernière
+ * construction sont parcourues séquentiellement.
+ *
+ * Les formes rendues sont des vues légères (RectangleView, CircleView, LineView)
+ * créées à la demande et identifiées par un id stable: deux vues de la même ligne
+ * sont égales. Une vue reflète la ligne au moment de sa création; les modifications
+ * passent par Drawing.updateShape. Couleur et épaisseur sont stockées sous forme
+ * d'identifiant de la StyleTable.
+ */
+public class ColumnarShapeStore implements ShapeStore {
+    private static final byte RECTANGLE = 0;
+    private static final byte CIRCLE = 1;
+    private static final byte LINE = 2;
+    // Nombre d'ids résumés par un rectangle englobant de bloc de l'index
+    private static final int BLOCK_SIZE = 64;
+    // Nombre de lignes non indexées toléré avant de reconstruire l'index
+    private static final int MIN_TAIL_BEFORE_REBUILD = 4096;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private byte[] types;
+    // 4 valeurs par ligne: rectangle (x, y, largeur, hauteur), cercle (cx, cy, rayon, -), ligne (x1, y1, x2, y2)
+    private double[] coords;
+    // Identifiant de style (StyleTable) de chaque ligne
+    private int[] styles;
+    // Rectangle englobant par ligne (minX, minY, maxX, maxY), arrondi vers l'extérieur
+    private float[] bounds;
+    // Id stable de chaque ligne et ligne de chaque id (-1 si retirée); les ids ne sont jamais réutilisés
+    private int[] ids;
+    private int[] rowOfId;
+    private int nextId;
+    // Clé de persistance de chaque ligne (Shape.getKey)
+    private long[] keys;
+
+    // Index spatial: ids triés par proximité (STR), découpés en blocs de BLOCK_SIZE
+    private int[] indexedIds = new int[0];
+    private int indexedCount;
+    private float[] blockBounds = new float[0];
+    // Bloc de chaque id indexé, -1 sinon
+    private int[] blockOfId;
+    // Les lignes à partir de tailStart ont été ajoutées depuis la construction de l'index
+    private int tailStart;
+    // Ids retirés encore présents dans l'index
+    private int deadIndexed;
+
+    public ColumnarShapeStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ColumnarShapeStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        types = new byte[capacity];
+        coords = new double[capacity * 4];
+        styles = new int[capacity];
+        bounds = new float[capacity * 4];
+        ids = new int[capacity];
+        keys = new long[capacity];
+        rowOfId = new int[capacity];
+        blockOfId = new int[capacity];
+    }
+
+    /**
+     * Vue sur une ligne du stockage
+     */
+    interface View {
+        ColumnarShapeStore store();
+        int id();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Shape get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size);
+        }
+        int c = index * 4;
+        int styleId = styles[index];
+        Shape view;
+        switch (types[index]) {
+            case RECTANGLE:
+                view = new RectangleView(this, ids[index], coords[c], coords[c + 1], coords[c + 2], coords[c + 3],
+                        styleId);
+                break;
+            case CIRCLE:
+                view = new CircleView(this, ids[index], coords[c], coords[c + 1], coords[c + 2], styleId);
+                break;
+            default:
+                view = new LineView(this, ids[index], coords[c], coords[c + 1], coords[c + 2], coords[c + 3],
+                        styleId);
+                break;
+        }
+        view.setKey(keys[index]);
+        return view;
+    }
+
+    /**
+     * Une vue est retrouvée par son id; une autre forme par sa clé (les clés attribuées par
+     * Drawing croissent avec les lignes), sinon par égalité de valeurs en partant du dessus:
+     * forme sans clé, ou dont la ligne a été retirée puis rajoutée par une vue (nouvelle clé)
+     */
+    @Override
+    public int indexOf(Shape shape) {
+        if (shape instanceof View && ((View) shape).store() == this) {
+            int id = ((View) shape).id();
+            return rowOfId[id];
+        }
+        long key = shape.getKey();
+        if (key != 0) {
+            // Deux formes identiques ont des clés différentes: la clé désigne la bonne ligne
+            int row = Arrays.binarySearch(keys, 0, size, key);
+            if (row >= 0 && matches(row, shape)) {
+                return row;
+            }
+        }
+        byte type = typeOf(shape);
+        double[] values = new double[4];
+        writeCoords(shape, values, 0);
+        int styleId = shape.getStyleId();
+        for (int row = size - 1; row >= 0; row--) {
+            int c = row * 4;
+            if (types[row] == type && styles[row] == styleId
+                    && coords[c] == values[0] && coords[c + 1] == values[1]
+                    && coords[c + 2] == values[2] && coords[c + 3] == values[3]) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int row, Shape shape) {
+        double[] values = new double[4];
+        writeCoords(shape, values, 0);
+        int c = row * 4;
+        return types[row] == typeOf(shape) && styles[row] == shape.getStyleId()
+                && coords[c] == values[0] && coords[c + 1] == values[1]
+                && coords[c + 2] == values[2] && coords[c + 3] == values[3];
+    }
+
+    @Override
+    public void add(Shape shape) {
+        byte type = typeOf(shape);
+        ensureCapacity(size + 1);
+        int row = size++;
+
+        // Une vue retirée puis rajoutée (annulation) retrouve son id
+        int id;
+        if (shape instanceof View && ((View) shape).store() == this && rowOfId[((View) shape).id()] < 0) {
+            id = ((View) shape).id();
+        } else {
+            id = nextId++;
+            if (id == rowOfId.length) {
+                int grown = Math.max(INITIAL_CAPACITY, id + (id >> 1));
+                rowOfId = Arrays.copyOf(rowOfId, grown);
+                blockOfId = Arrays.copyOf(blockOfId, grown);
+            }
+            blockOfId[id] = -1;
+        }
+        // La ligne ajoutée fait partie de la queue non indexée (un id rajouté y est ignoré par l'index)
+        ids[row] = id;
+        rowOfId[id] = row;
+        types[row] = type;
+        keys[row] = shape.getKey();
+        write(row, shape);
+    }
+
+    @Override
+    public void remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size);
+        }
+        rowOfId[ids[index]] = -1;
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(types, index + 1, types, index, moved);
+            System.arraycopy(coords, (index + 1) * 4, coords, index * 4, moved * 4);
+            System.arraycopy(styles, index + 1, styles, index, moved);
+            System.arraycopy(bounds, (index + 1) * 4, bounds, index * 4, moved * 4);
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            for (int row = index; row < size - 1; row++) {
+                rowOfId[ids[row]] = row;
+            }
+        }
+        size--;
+        if (index < tailStart) {
+            tailStart--;
+            deadIndexed++;
+        }
+    }
+
+    @Override
+    public void updated(int index, Shape shape) {
+        if (typeOf(shape) != types[index]) {
+            throw new IllegalArgumentException("Le type d'une forme ne peut pas changer");
+        }
+        write(index, shape);
+    }
+
+    @Override
+    public void clear() {
+        for (int row = 0; row < size; row++) {
+            rowOfId[ids[row]] = -1;
+        }
+        for (int i = 0; i < indexedCount; i++) {
+            blockOfId[indexedIds[i]] = -1;
+        }
+        size = 0;
+        indexedCount = 0;
+        tailStart = 0;
+        deadIndexed = 0;
+    }
+
+    @Override
+    public boolean hasFrozenSnapshots() {
+        return true;
+    }
+
+    /**
+     * Copie figée des colonnes, présentée comme une liste de vues
+     */
+    @Override
+    public List<Shape> snapshot() {
+        ColumnarShapeStore copy = new ColumnarShapeStore(size);
+        System.arraycopy(types, 0, copy.types, 0, size);
+        System.arraycopy(coords, 0, copy.coords, 0, size * 4);
+        System.arraycopy(styles, 0, copy.styles, 0, size);
+        System.arraycopy(bounds, 0, copy.bounds, 0, size * 4);
+        System.arraycopy(ids, 0, copy.ids, 0, size);
+        System.arraycopy(keys, 0, copy.keys, 0, size);
+        copy.size = size;
+        copy.nextId = nextId;
+        copy.rowOfId = Arrays.copyOf(rowOfId, rowOfId.length);
+        return copy.readOnlyList();
+    }
+
+    /**
+     * Copie figée de formes quelconques: les modifications ultérieures des formes
+     * d'origine ne s'y voient pas (sauvegarde en arrière-plan)
+     */
+    public static List<Shape> copyOf(Collection<? extends Shape> shapes) {
+        ColumnarShapeStore copy = new ColumnarShapeStore(shapes.size());
+        for (Shape shape : shapes) {
+            copy.add(shape);
+        }
+        return copy.readOnlyList();
+    }
+
+    private List<Shape> readOnlyList() {
+        return Collections.unmodifiableList(new AbstractList<Shape>() {
+            @Override
+            public Shape get(int index) {
+                return ColumnarShapeStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        });
+    }
+
+    @Override
+    public List<Shape> query(double minX, double minY, double maxX, double maxY) {
+        int[] rows = candidateRows(minX, minY, maxX, maxY);
+        List<Shape> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    @Override
+    public Shape findTopmost(double minX, double minY, double maxX, double maxY, Predicate<Shape> test) {
+        int[] rows = candidateRows(minX, minY, maxX, maxY);
+        for (int i = rows.length - 1; i >= 0; i--) {
+            Shape shape = get(rows[i]);
+            if (test.test(shape)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lignes dont le rectangle intersecte la région, triées dans l'ordre z
+     */
+    private int[] candidateRows(double minX, double minY, double maxX, double maxY) {
+        int tail = size - tailStart;
+        if (tail > Math.max(MIN_TAIL_BEFORE_REBUILD, size / 8) || deadIndexed > indexedCount / 4) {
+            rebuildIndex();
+        }
+
+        int[] rows = new int[16];
+        int found = 0;
+        int blocks = (indexedCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (int block = 0; block < blocks; block++) {
+            if (!intersects(blockBounds, block * 4, minX, minY, maxX, maxY)) continue;
+            int end = Math.min(indexedCount, (block + 1) * BLOCK_SIZE);
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                int row = rowOfId[indexedIds[i]];
+                // Id retiré, ou rajouté depuis et traité avec la queue
+                if (row < 0 || row >= tailStart) continue;
+                if (intersects(bounds, row * 4, minX, minY, maxX, maxY)) {
+                    if (found == rows.length) rows = Arrays.copyOf(rows, found * 2);
+                    rows[found++] = row;
+                }
+            }
+        }
+        for (int row = tailStart; row < size; row++) {
+            if (intersects(bounds, row * 4, minX, minY, maxX, maxY)) {
+                if (found == rows.length) rows = Arrays.copyOf(rows, found * 2);
+                rows[found++] = row;
+            }
+        }
+        rows = Arrays.copyOf(rows, found);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Construit l'index par tri STR: tranches verticales par centre x,
+     * puis blocs de BLOCK_SIZE ids par centre y dans chaque tranche
+     */
+    private void rebuildIndex() {
+        for (int i = 0; i < indexedCount; i++) {
+            blockOfId[indexedIds[i]] = -1;
+        }
+        indexedCount = size;
+        if (indexedIds.length < size) {
+            indexedIds = new int[size];
+        }
+        // Clé triable: centre (float ordonné comme un int) dans les 32 bits hauts, ligne dans les bas
+        long[] sortKeys = new long[size];
+        for (int row = 0; row < size; row++) {
+            sortKeys[row] = sortKey((bounds[row * 4] + bounds[row * 4 + 2]) / 2, row);
+        }
+        Arrays.sort(sortKeys);
+
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int slices = Math.max(1, (int) Math.ceil(Math.sqrt(blocks)));
+        int sliceSize = (int) Math.ceil((double) blocks / slices) * BLOCK_SIZE;
+        for (int start = 0; start < size; start += sliceSize) {
+            int end = Math.min(size, start + sliceSize);
+            for (int i = start; i < end; i++) {
+                int row = (int) sortKeys[i];
+                sortKeys[i] = sortKey((bounds[row * 4 + 1] + bounds[row * 4 + 3]) / 2, row);
+            }
+            Arrays.sort(sortKeys, start, end);
+        }
+
+        if (blockBounds.length < blocks * 4) {
+            blockBounds = new float[blocks * 4];
+        }
+        for (int block = 0; block < blocks; block++) {
+            int b = block * 4;
+            blockBounds[b] = blockBounds[b + 1] = Float.POSITIVE_INFINITY;
+            blockBounds[b + 2] = blockBounds[b + 3] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < size; i++) {
+            int row = (int) sortKeys[i];
+            int id = ids[row];
+            indexedIds[i] = id;
+            blockOfId[id] = i / BLOCK_SIZE;
+            include(i / BLOCK_SIZE, row * 4);
+        }
+        tailStart = size;
+        deadIndexed = 0;
+    }
+
+    static long sortKey(float value, int row) {
+        int bits = Float.floatToIntBits(value);
+        // Ordre des flottants négatifs inversé pour un tri signé correct
+        bits ^= (bits >> 31) & 0x7FFFFFFF;
+        return ((long) bits << 32) | row;
+    }
+
+    /**
+     * Mémoire occupée par les colonnes et l'index, en octets (capacité allouée comprise)
+     */
+    public long getColumnBytes() {
+        return types.length + coords.length * 8L + styles.length * 4L
+                + bounds.length * 4L + ids.length * 4L + keys.length * 8L + rowOfId.length * 4L + blockOfId.length * 4L
+                + indexedIds.length * 4L + blockBounds.length * 4L;
+    }
+
+    private void write(int row, Shape shape) {
+        writeCoords(shape, coords, row * 4);
+        styles[row] = shape.getStyleId();
+
+        Rectangle2D b = shape.getBounds();
+        int r = row * 4;
+        bounds[r] = lower(b.getMinX());
+        bounds[r + 1] = lower(b.getMinY());
+        bounds[r + 2] = upper(b.getMaxX());
+        bounds[r + 3] = upper(b.getMaxY());
+
+        // Le bloc de l'index est seulement élargi: il reste un majorant valide
+        int block = blockOfId[ids[row]];
+        if (row < tailStart && block >= 0) {
+            include(block, r);
+        }
+    }
+
+    private static byte typeOf(Shape shape) {
+        if (shape instanceof Rectangle) return RECTANGLE;
+        if (shape instanceof Circle) return CIRCLE;
+        if (shape instanceof Line) return LINE;
+        throw new IllegalArgumentException("Type de forme non pris en charge par le stockage en colonnes: "
+                + shape.getClass().getSimpleName());
+    }
+
+    private static void writeCoords(Shape shape, double[] target, int offset) {
+        target[offset] = shape.getX();
+        target[offset + 1] = shape.getY();
+        if (shape instanceof Rectangle) {
+            target[offset + 2] = ((Rectangle) shape).getWidth();
+            target[offset + 3] = ((Rectangle) shape).getHeight();
+        } else if (shape instanceof Circle) {
+            target[offset + 2] = ((Circle) shape).getRadius();
+            target[offset + 3] = 0;
+        } else {
+            target[offset + 2] = ((Line) shape).getEndX();
+            target[offset + 3] = ((Line) shape).getEndY();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length) return;
+        int grown = Math.max(capacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, grown);
+        coords = Arrays.copyOf(coords, grown * 4);
+        styles = Arrays.copyOf(styles, grown);
+        bounds = Arrays.copyOf(bounds, grown * 4);
+        ids = Arrays.copyOf(ids, grown);
+        keys = Arrays.copyOf(keys, grown);
+    }
+
+    private void include(int block, int r) {
+        int b = block * 4;
+        blockBounds[b] = Math.min(blockBounds[b], bounds[r]);
+        blockBounds[b + 1] = Math.min(blockBounds[b + 1], bounds[r + 1]);
+        blockBounds[b + 2] = Math.max(blockBounds[b + 2], bounds[r + 2]);
+        blockBounds[b + 3] = Math.max(blockBounds[b + 3], bounds[r + 3]);
+    }
+
+    private static boolean intersects(float[] b, int i, double minX, double minY, double maxX, double maxY) {
+        return b[i] <= maxX && b[i + 2] >= minX && b[i + 1] <= maxY && b[i + 3] >= minY;
+    }
+
+    static float lower(double v) {
+        float f = (float) v;
+        return f > v ? Math.nextDown(f) : f;
+    }
+
+    static float upper(double v) {
+        float f = (float) v;
+        return f < v ? Math.nextUp(f) : f;
+    }
+
+    static final class RectangleView extends Rectangle implements View {
+        private final ColumnarShapeStore store;
+        private final int id;
+
+        RectangleView(ColumnarShapeStore store, int id, double x, double y, double width, double height,
+                      int styleId) {
+            super(x, y, width, height, styleId);
+            this.store = store;
+            this.id = id;
+        }
+
+        @Override public ColumnarShapeStore store() { return store; }
+        @Override public int id() { return id; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View && ((View) o).store() == store && ((View) o).id() == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    static final class CircleView extends Circle implements View {
+        private final ColumnarShapeStore store;
+        private final int id;
+
+        CircleView(ColumnarShapeStore store, int id, double x, double y, double radius,
+                   int styleId) {
+            super(x, y, radius, styleId);
+            this.store = store;
+            this.id = id;
+        }
+
+        @Override public ColumnarShapeStore store() { return store; }
+        @Override public int id() { return id; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View && ((View) o).store() == store && ((View) o).id() == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    static final class LineView extends Line implements View {
+        private final ColumnarShapeStore store;
+        private final int id;
+
+        LineView(ColumnarShapeStore store, int id, double startX, double startY, double endX, double endY,
+                 int styleId) {
+            super(startX, startY, endX, endY, styleId);
+            this.store = store;
+            this.id = id;
+        }
+
+        @Override public ColumnarShapeStore store() { return store; }
+        @Override public int id() { return id; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View && ((View) o).store() == store && ((View) o).id() == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
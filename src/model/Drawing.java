@@ -1,21 +1,86 @@
 package model;
 
+import javafx.geometry.Rectangle2D;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Observable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Classe représentant un dessin (collection de formes)
- * Utilise le pattern Observer pour notifier les changements
+ * Utilise le pattern Observer pour notifier les changements via des événements typés
+ * et le pattern Strategy pour le stockage des formes (objets ou colonnes)
  */
-@SuppressWarnings("deprecation")
-public class Drawing extends Observable {
-    private List<Shape> shapes;
+public class Drawing {
+    // Formes dans l'ordre z et index spatial
+    private ShapeStore shapes;
+    // Vue en lecture seule sur le stockage (aucune copie)
+    private final ShapesView shapesView;
+    // Copie immuable partagée tant que le dessin n'est pas modifié
+    private volatile List<Shape> snapshot;
+    private final List<DrawingListener> listeners;
     private String name;
     private long id;
     
+    // État du lot en cours: les notifications sont différées jusqu'à endBatch
+    private int batchDepth;
+    private List<DrawingEvent.Change> batchChanges;
+    private boolean batchCleared;
+    
+    // Suivi des modifications pour la sauvegarde incrémentale
+    // Chaque forme ajoutée reçoit une clé croissante: l'ordre des clés est l'ordre z
+    private long lastKey;
+    // Les clés inférieures ou égales ont été enregistrées
+    private long savedKeyLimit;
+    // Vrai tant que le dessin n'a pas de version enregistrée à laquelle comparer
+    private boolean fullSaveNeeded = true;
+    private final Map<Long, Shape> dirtyShapes = new HashMap<>();
+    private final Set<Long> deletedKeys = new HashSet<>();
+    // Plus grande clé reçue de la sauvegarde (addSavedShapes)
+    private long loadedKeyLimit;
+    // Chargement interrompu: les formes enregistrées de clés dans ]unloadedFromKey, unloadedToKey]
+    // n'ont pas été chargées, une sauvegarde complète doit les conserver
+    private boolean partial;
+    private long unloadedFromKey;
+    private long unloadedToKey;
+    
+    /**
+     * Vue vivante non modifiable; son compteur de modifications rend l'itérateur fail-fast
+     */
+    private final class ShapesView extends AbstractList<Shape> {
+        @Override
+        public Shape get(int index) {
+            return shapes.get(index);
+        }
+
+        @Override
+        public int size() {
+            return shapes.size();
+        }
+
+        void changed() {
+            modCount++;
+        }
+    }
+    
     public Drawing() {
-        this.shapes = new ArrayList<>();
+        this(new ObjectShapeStore());
+    }
+    
+    /**
+     * Dessin utilisant le stockage donné, par exemple ColumnarShapeStore pour les très gros dessins
+     */
+    public Drawing(ShapeStore store) {
+        this.shapes = store;
+        this.shapesView = new ShapesView();
+        this.listeners = new CopyOnWriteArrayList<>();
         this.name = "Nouveau Dessin";
         this.id = System.currentTimeMillis();
     }
@@ -25,54 +90,405 @@ public class Drawing extends Observable {
         this.name = name;
     }
     
+    public void addDrawingListener(DrawingListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeDrawingListener(DrawingListener listener) {
+        listeners.remove(listener);
+    }
+    
     public void addShape(Shape shape) {
+        int index = shapes.size();
+        assignKey(shape);
         shapes.add(shape);
-        setChanged();
-        notifyObservers("SHAPE_ADDED");
+        modified();
+        fireChange(DrawingEvent.Type.SHAPE_ADDED,
+                new DrawingEvent.Change(DrawingEvent.Change.Kind.ADDED, shape, index, null, shape.getBounds()));
+    }
+    
+    /**
+     * Remplace les formes par celles d'un stockage déjà rempli, sans les copier
+     * (fichier .drw projeté en mémoire). Les clés du stockage doivent croître dans l'ordre z;
+     * la prochaine sauvegarde sera complète.
+     */
+    public void replaceStore(ShapeStore store) {
+        if (batchDepth > 0) {
+            throw new IllegalStateException("Remplacement du stockage pendant un lot");
+        }
+        shapes = store;
+        lastKey = store.size() > 0 ? store.get(store.size() - 1).getKey() : 0;
+        savedKeyLimit = 0;
+        loadedKeyLimit = 0;
+        partial = false;
+        requireFullSave();
+        modified();
+        fire(new DrawingEvent(this, DrawingEvent.Type.DRAWING_CLEARED, Collections.emptyList(), true, false));
+    }
+    
+    /**
+     * Ajoute plusieurs formes avec une seule notification
+     */
+    public void addShapes(Collection<? extends Shape> newShapes) {
+        beginBatch();
+        try {
+            int index = shapes.size();
+            for (Shape shape : newShapes) {
+                assignKey(shape);
+                shapes.add(shape);
+                batchChanges.add(new DrawingEvent.Change(DrawingEvent.Change.Kind.ADDED, shape, index++,
+                        null, shape.getBounds()));
+            }
+            modified();
+        } finally {
+            endBatch();
+        }
+    }
+    
+    /**
+     * Ajoute des formes relues depuis la sauvegarde du dessin, en conservant leurs clés
+     * Elles ne sont pas considérées comme modifiées. Une forme sans clé, ou dont la clé
+     * ne suit pas celle de la dernière forme du dessin, est traitée comme un ajout ordinaire.
+     * Les clés déjà réservées (reserveKeys) restent utilisables par les formes relues.
+     */
+    public void addSavedShapes(Collection<? extends Shape> savedShapes) {
+        beginBatch();
+        try {
+            int index = shapes.size();
+            long previousKey = index > 0 ? shapes.get(index - 1).getKey() : 0;
+            for (Shape shape : savedShapes) {
+                if (shape.getKey() > previousKey) {
+                    previousKey = shape.getKey();
+                    lastKey = Math.max(lastKey, previousKey);
+                    savedKeyLimit = Math.max(savedKeyLimit, previousKey);
+                    loadedKeyLimit = Math.max(loadedKeyLimit, previousKey);
+                } else {
+                    assignKey(shape);
+                }
+                shapes.add(shape);
+                batchChanges.add(new DrawingEvent.Change(DrawingEvent.Change.Kind.ADDED, shape, index++,
+                        null, shape.getBounds()));
+            }
+            modified();
+        } finally {
+            endBatch();
+        }
+    }
+    
+    /**
+     * Remplace toutes les formes du dessin avec une seule notification
+     */
+    public void replaceAll(Collection<? extends Shape> newShapes) {
+        // Copier d'abord: la source peut être une vue sur ce dessin
+        List<Shape> incoming = new ArrayList<>(newShapes);
+        beginBatch();
+        try {
+            clear();
+            addShapes(incoming);
+        } finally {
+            endBatch();
+        }
+    }
+    
+    /**
+     * Démarre un lot: les modifications suivantes ne seront notifiées
+     * qu'une seule fois, au endBatch correspondant (les lots peuvent s'imbriquer)
+     */
+    public void beginBatch() {
+        if (batchDepth++ == 0) {
+            batchChanges = new ArrayList<>();
+            batchCleared = false;
+        }
+    }
+    
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("endBatch appelé sans beginBatch");
+        }
+        if (--batchDepth > 0) return;
+        
+        List<DrawingEvent.Change> changes = batchChanges;
+        boolean cleared = batchCleared;
+        batchChanges = null;
+        batchCleared = false;
+        
+        if (cleared || !changes.isEmpty()) {
+            fire(new DrawingEvent(this, DrawingEvent.Type.BATCH, changes, cleared, false));
+        }
+    }
+    
+    public boolean isInBatch() {
+        return batchDepth > 0;
     }
     
     public void removeShape(Shape shape) {
-        if (shapes.remove(shape)) {
-            setChanged();
-            notifyObservers("SHAPE_REMOVED");
+        int index = shapes.indexOf(shape);
+        if (index < 0) return;
+        
+        long key = shapes.get(index).getKey();
+        shapes.remove(index);
+        if (!fullSaveNeeded) {
+            dirtyShapes.remove(key);
+            if (key <= savedKeyLimit) {
+                deletedKeys.add(key);
+            }
+        }
+        modified();
+        fireChange(DrawingEvent.Type.SHAPE_REMOVED,
+                new DrawingEvent.Change(DrawingEvent.Change.Kind.REMOVED, shape, index, shape.getBounds(), null));
+    }
+    
+    /**
+     * Modifie une forme du dessin en maintenant l'index spatial
+     * et notifie les rectangles avant/après
+     */
+    public void updateShape(Shape shape, Consumer<? super Shape> mutation) {
+        int index = shapes.indexOf(shape);
+        if (index < 0) {
+            throw new IllegalArgumentException("La forme n'appartient pas à ce dessin");
+        }
+        Rectangle2D oldBounds = shape.getBounds();
+        mutation.accept(shape);
+        shapes.updated(index, shape);
+        snapshot = null;
+        if (!fullSaveNeeded) {
+            dirtyShapes.put(shape.getKey(), shape);
         }
+        Rectangle2D newBounds = shape.getBounds();
+        fireChange(DrawingEvent.Type.SHAPE_UPDATED,
+                new DrawingEvent.Change(DrawingEvent.Change.Kind.UPDATED, shape, index, oldBounds, newBounds));
     }
     
     public void clear() {
         shapes.clear();
-        setChanged();
-        notifyObservers("DRAWING_CLEARED");
+        // Plus aucune forme: les clés repartent de zéro (une forme rajoutée reçoit une nouvelle clé)
+        lastKey = 0;
+        savedKeyLimit = 0;
+        loadedKeyLimit = 0;
+        partial = false;
+        requireFullSave();
+        modified();
+        if (batchDepth > 0) {
+            // Les modifications précédentes du lot sont caduques
+            batchChanges.clear();
+            batchCleared = true;
+        } else {
+            fire(new DrawingEvent(this, DrawingEvent.Type.DRAWING_CLEARED, Collections.emptyList(), true, false));
+        }
     }
     
-    public List<Shape> getShapes() {
-        return new ArrayList<>(shapes);
+    private void assignKey(Shape shape) {
+        shape.setKey(++lastKey);
+        if (!fullSaveNeeded) {
+            dirtyShapes.put(lastKey, shape);
+        }
     }
     
-    public Shape getShapeAt(double x, double y) {
-        // Retourne la dernière forme (celle du dessus) qui contient le point
-        for (int i = shapes.size() - 1; i >= 0; i--) {
-            Shape shape = shapes.get(i);
-            if (shape.contains(x, y)) {
-                return shape;
+    /**
+     * Capture les modifications depuis la dernière capture et repart de zéro
+     * À appeler au moment de sauvegarder; en cas d'échec, appeler requireFullSave
+     * Les formes capturées sont copiées: l'écriture peut se faire sur un autre thread
+     */
+    public DrawingChanges takeChanges() {
+        DrawingChanges changes;
+        if (fullSaveNeeded && partial) {
+            changes = DrawingChanges.partial(id, frozenSnapshot(), unloadedFromKey, unloadedToKey);
+        } else if (fullSaveNeeded) {
+            changes = DrawingChanges.full(id, frozenSnapshot());
+        } else {
+            List<Long> keys = new ArrayList<>(dirtyShapes.keySet());
+            Collections.sort(keys);
+            List<Shape> upserts = new ArrayList<>(keys.size());
+            for (Long key : keys) {
+                upserts.add(dirtyShapes.get(key));
             }
+            long[] deleted = deletedKeys.stream().mapToLong(Long::longValue).sorted().toArray();
+            changes = DrawingChanges.delta(id, ColumnarShapeStore.copyOf(upserts), deleted, savedKeyLimit);
+        }
+        fullSaveNeeded = false;
+        savedKeyLimit = lastKey;
+        dirtyShapes.clear();
+        deletedKeys.clear();
+        return changes;
+    }
+    
+    /**
+     * Copie des formes indépendante des modifications ultérieures, même faites en place
+     * (updateShape): utilisable par une écriture sur un autre thread
+     */
+    public List<Shape> frozenSnapshot() {
+        List<Shape> all = snapshot();
+        return shapes.hasFrozenSnapshots() ? all : ColumnarShapeStore.copyOf(all);
+    }
+    
+    /**
+     * Fichier .drw dont les formes sont encore lues à la demande, sinon null
+     */
+    public MappedShapeStore getMappedStore() {
+        if (shapes instanceof MappedShapeStore && ((MappedShapeStore) shapes).isMapped()) {
+            return (MappedShapeStore) shapes;
         }
         return null;
     }
     
+    /**
+     * Dernière clé attribuée à une forme
+     */
+    public long getLastKey() {
+        return lastKey;
+    }
+    
+    /**
+     * Les formes ajoutées ensuite recevront des clés supérieures à lastKey
+     * (reprise d'un dessin dont des formes ont été retirées après la dernière clé)
+     */
+    public void reserveKeys(long lastKey) {
+        this.lastKey = Math.max(this.lastKey, lastKey);
+    }
+    
+    /**
+     * Chargement interrompu: les formes enregistrées après la dernière reçue, jusqu'à la dernière
+     * clé réservée au début du chargement, restent en base et seront conservées par une sauvegarde
+     * complète. Sans effet une fois le dessin vidé ou remplacé.
+     */
+    public void markPartial() {
+        markPartial(loadedKeyLimit, lastKey);
+    }
+    
+    /**
+     * Rétablit l'état d'un chargement interrompu (reprise après incident)
+     */
+    public void markPartial(long unloadedFromKey, long unloadedToKey) {
+        this.partial = true;
+        this.unloadedFromKey = unloadedFromKey;
+        this.unloadedToKey = unloadedToKey;
+    }
+    
+    /**
+     * Vrai si des formes enregistrées n'ont pas été chargées (voir markPartial)
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+    
+    public long getUnloadedFromKey() {
+        return unloadedFromKey;
+    }
+    
+    public long getUnloadedToKey() {
+        return unloadedToKey;
+    }
+    
+    /**
+     * La prochaine sauvegarde réécrira tout le dessin (sauvegarde en échec, dessin vidé...)
+     */
+    public void requireFullSave() {
+        fullSaveNeeded = true;
+        dirtyShapes.clear();
+        deletedKeys.clear();
+    }
+    
+    /**
+     * Considère le dessin comme identique à sa version enregistrée (après un chargement)
+     */
+    public void markSaved() {
+        fullSaveNeeded = false;
+        savedKeyLimit = lastKey;
+        dirtyShapes.clear();
+        deletedKeys.clear();
+    }
+    
+    /**
+     * Vrai si des modifications n'ont pas encore été capturées par takeChanges
+     */
+    public boolean hasUnsavedChanges() {
+        return fullSaveNeeded || !dirtyShapes.isEmpty() || !deletedKeys.isEmpty();
+    }
+    
+    private void modified() {
+        snapshot = null;
+        shapesView.changed();
+    }
+    
+    private void fireChange(DrawingEvent.Type type, DrawingEvent.Change change) {
+        if (batchDepth > 0) {
+            batchChanges.add(change);
+        } else {
+            fire(DrawingEvent.single(this, type, change));
+        }
+    }
+    
+    private void fire(DrawingEvent event) {
+        for (DrawingListener listener : listeners) {
+            listener.drawingChanged(event);
+        }
+    }
+    
+    /**
+     * Copie modifiable de la liste des formes
+     * Préférer forEachShape, getShapesView ou snapshot qui n'allouent pas à chaque appel
+     */
+    public List<Shape> getShapes() {
+        return new ArrayList<>(shapesView);
+    }
+    
+    /**
+     * Parcourt les formes dans l'ordre z sans copie
+     * Lève ConcurrentModificationException si le dessin est modifié pendant le parcours
+     */
+    public void forEachShape(Consumer<? super Shape> action) {
+        shapesView.forEach(action);
+    }
+    
+    /**
+     * Vue vivante et non modifiable sur les formes (itérateur fail-fast)
+     * À n'utiliser que depuis le thread qui modifie le dessin
+     */
+    public List<Shape> getShapesView() {
+        return shapesView;
+    }
+    
+    /**
+     * Copie immuable des formes, utilisable depuis un autre thread
+     * La même copie est réutilisée tant que le dessin n'est pas modifié
+     */
+    public List<Shape> snapshot() {
+        List<Shape> current = snapshot;
+        if (current == null) {
+            current = shapes.snapshot();
+            snapshot = current;
+        }
+        return current;
+    }
+    
+    public Shape getShapeAt(double x, double y) {
+        // Retourne la dernière forme (celle du dessus) qui contient le point
+        // La marge couvre la tolérance de sélection des lignes
+        double margin = Line.HIT_TOLERANCE;
+        return shapes.findTopmost(x - margin, y - margin, x + margin, y + margin,
+                shape -> shape.contains(x, y));
+    }
+    
+    /**
+     * Retourne les formes dont le rectangle englobant intersecte la région, dans l'ordre z
+     */
+    public List<Shape> queryRegion(double minX, double minY, double maxX, double maxY) {
+        return shapes.query(minX, minY, maxX, maxY);
+    }
+    
     public int getShapeCount() {
         return shapes.size();
     }
     
     public boolean isEmpty() {
-        return shapes.isEmpty();
+        return shapes.size() == 0;
     }
     
     // Getters et setters
     public String getName() { return name; }
     public void setName(String name) { 
         this.name = name;
-        setChanged();
-        notifyObservers("NAME_CHANGED");
+        fire(new DrawingEvent(this, DrawingEvent.Type.NAME_CHANGED, Collections.emptyList(), false, true));
     }
     
     public long getId() { return id; }
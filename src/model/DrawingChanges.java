@@ -0,0 +1,73 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Modifications d'un dessin depuis sa dernière sauvegarde (copie figée, voir Drawing.takeChanges)
+ * Une sauvegarde complète réécrit toutes les formes; une sauvegarde incrémentale
+ * n'écrit que les formes ajoutées ou modifiées et supprime les clés retirées.
+ * Une sauvegarde complète d'un dessin chargé en partie conserve les formes enregistrées
+ * jamais chargées (clés dans ]unloadedFromKey, unloadedToKey]).
+ */
+public final class DrawingChanges {
+    private final long drawingId;
+    private final boolean full;
+    private final List<Shape> shapes;
+    private final long[] deletedKeys;
+    private final long previousKeyLimit;
+    private final boolean partial;
+    private final long unloadedFromKey;
+    private final long unloadedToKey;
+
+    private DrawingChanges(long drawingId, boolean full, List<Shape> shapes, long[] deletedKeys,
+                           long previousKeyLimit, boolean partial, long unloadedFromKey, long unloadedToKey) {
+        this.drawingId = drawingId;
+        this.full = full;
+        this.shapes = Collections.unmodifiableList(shapes);
+        this.deletedKeys = deletedKeys;
+        this.previousKeyLimit = previousKeyLimit;
+        this.partial = partial;
+        this.unloadedFromKey = unloadedFromKey;
+        this.unloadedToKey = unloadedToKey;
+    }
+
+    static DrawingChanges full(long drawingId, List<Shape> shapes) {
+        return new DrawingChanges(drawingId, true, shapes, new long[0], 0, false, 0, 0);
+    }
+
+    static DrawingChanges partial(long drawingId, List<Shape> shapes, long unloadedFromKey, long unloadedToKey) {
+        return new DrawingChanges(drawingId, true, shapes, new long[0], 0, true, unloadedFromKey, unloadedToKey);
+    }
+
+    static DrawingChanges delta(long drawingId, List<Shape> upserts, long[] deletedKeys, long previousKeyLimit) {
+        return new DrawingChanges(drawingId, false, upserts, deletedKeys, previousKeyLimit, false, 0, 0);
+    }
+
+    // Identifiant du dessin au moment de la capture
+    public long getDrawingId() { return drawingId; }
+    // Vrai si toutes les formes doivent être réécrites
+    public boolean isFull() { return full; }
+    // Toutes les formes (complète) ou les formes ajoutées/modifiées (incrémentale), par clé croissante
+    public List<Shape> getShapes() { return shapes; }
+    // Clés des formes enregistrées puis retirées du dessin
+    public long[] getDeletedKeys() { return deletedKeys; }
+    // Les clés inférieures ou égales existaient déjà en base avant cette sauvegarde
+    public long getPreviousKeyLimit() { return previousKeyLimit; }
+    // Sauvegarde complète d'un dessin chargé en partie (identifiant de la capture requis)
+    public boolean isPartial() { return partial; }
+    // Les formes enregistrées de clés dans ]unloadedFromKey, unloadedToKey] sont à conserver
+    public long getUnloadedFromKey() { return unloadedFromKey; }
+    public long getUnloadedToKey() { return unloadedToKey; }
+
+    /**
+     * Nombre de formes écrites ou supprimées par cette sauvegarde
+     */
+    public int size() {
+        return shapes.size() + deletedKeys.length;
+    }
+
+    public boolean isEmpty() {
+        return !full && size() == 0;
+    }
+}
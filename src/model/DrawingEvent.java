@@ -0,0 +1,123 @@
+package model;
+
+import javafx.geometry.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Notification typée envoyée par un dessin à ses écouteurs
+ * Décrit le delta: formes touchées, position dans l'ordre z et rectangles avant/après
+ */
+public class DrawingEvent {
+
+    public enum Type {
+        SHAPE_ADDED, SHAPE_REMOVED, SHAPE_UPDATED, DRAWING_CLEARED, NAME_CHANGED,
+        // Plusieurs modifications regroupées (lot ou fusion d'événements)
+        BATCH
+    }
+
+    /**
+     * Modification élémentaire d'une forme
+     */
+    public static final class Change {
+        public enum Kind { ADDED, REMOVED, UPDATED }
+
+        private final Kind kind;
+        private final Shape shape;
+        private final int index;
+        private final Rectangle2D oldBounds;
+        private final Rectangle2D newBounds;
+
+        public Change(Kind kind, Shape shape, int index, Rectangle2D oldBounds, Rectangle2D newBounds) {
+            this.kind = kind;
+            this.shape = shape;
+            this.index = index;
+            this.oldBounds = oldBounds;
+            this.newBounds = newBounds;
+        }
+
+        public Kind getKind() { return kind; }
+        public Shape getShape() { return shape; }
+        // Position dans la liste au moment de la modification
+        public int getIndex() { return index; }
+        // Rectangle avant la modification (null pour un ajout)
+        public Rectangle2D getOldBounds() { return oldBounds; }
+        // Rectangle après la modification (null pour une suppression)
+        public Rectangle2D getNewBounds() { return newBounds; }
+    }
+
+    private final Drawing source;
+    private final Type type;
+    private final List<Change> changes;
+    private final boolean cleared;
+    private final boolean nameChanged;
+
+    public DrawingEvent(Drawing source, Type type, List<Change> changes, boolean cleared, boolean nameChanged) {
+        this.source = source;
+        this.type = type;
+        this.changes = Collections.unmodifiableList(changes);
+        this.cleared = cleared;
+        this.nameChanged = nameChanged;
+    }
+
+    static DrawingEvent single(Drawing source, Type type, Change change) {
+        return new DrawingEvent(source, type, Collections.singletonList(change), false, false);
+    }
+
+    public Drawing getSource() { return source; }
+    public Type getType() { return type; }
+    // Modifications dans l'ordre où elles ont été appliquées (après un éventuel effacement)
+    public List<Change> getChanges() { return changes; }
+    // Vrai si le dessin a été vidé: l'état précédent n'est plus valide
+    public boolean isCleared() { return cleared; }
+    public boolean isNameChanged() { return nameChanged; }
+
+    /**
+     * Forme concernée pour un événement élémentaire, null sinon
+     */
+    public Shape getShape() {
+        return changes.size() == 1 ? changes.get(0).getShape() : null;
+    }
+
+    public List<Shape> getAddedShapes() {
+        return shapesOf(Change.Kind.ADDED);
+    }
+
+    public List<Shape> getRemovedShapes() {
+        return shapesOf(Change.Kind.REMOVED);
+    }
+
+    private List<Shape> shapesOf(Change.Kind kind) {
+        List<Shape> result = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.getKind() == kind) {
+                result.add(change.getShape());
+            }
+        }
+        return result;
+    }
+
+    public boolean affectsShapes() {
+        return cleared || !changes.isEmpty();
+    }
+
+    /**
+     * Fusionne cet événement avec le suivant pour les écouteurs qui regroupent les notifications
+     * Un effacement dans l'événement suivant rend les modifications précédentes caduques
+     */
+    public DrawingEvent mergeWith(DrawingEvent next) {
+        if (next.cleared) {
+            return new DrawingEvent(source, Type.BATCH, next.changes, true, nameChanged || next.nameChanged);
+        }
+        List<Change> merged = new ArrayList<>(changes.size() + next.changes.size());
+        merged.addAll(changes);
+        merged.addAll(next.changes);
+        return new DrawingEvent(source, Type.BATCH, merged, cleared, nameChanged || next.nameChanged);
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + changes.size() + " modification(s)" + (cleared ? ", effacé" : "") + "]";
+    }
+}
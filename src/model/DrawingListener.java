@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * Écouteur des modifications d'un dessin (pattern Observer typé)
+ */
+@FunctionalInterface
+public interface DrawingListener {
+    void drawingChanged(DrawingEvent event);
+}
@@ -1,5 +1,6 @@
 package model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
@@ -7,50 +8,90 @@ import javafx.scene.paint.Color;
  * Classe représentant une ligne
  */
 public class Line extends Shape {
+    // Distance maximale (en pixels) pour considérer un point sur la ligne
+    public static final double HIT_TOLERANCE = 5.0;
+    
     private double endX, endY;
+    // Longueur en cache (NaN = à recalculer)
+    private double length = Double.NaN;
     
     public Line(double startX, double startY, double endX, double endY, Color color, double strokeWidth) {
-        super(startX, startY, color, strokeWidth);
+        this(startX, startY, endX, endY, StyleTable.getInstance().intern(color, strokeWidth));
+    }
+    
+    public Line(double startX, double startY, double endX, double endY, int styleId) {
+        super(startX, startY, styleId);
         this.endX = endX;
         this.endY = endY;
     }
     
     @Override
     public void draw(GraphicsContext gc) {
-        gc.setStroke(color);
-        gc.setLineWidth(strokeWidth);
+        gc.setStroke(getColor());
+        gc.setLineWidth(getStrokeWidth());
         gc.strokeLine(x, y, endX, endY);
     }
     
     @Override
     public boolean contains(double pointX, double pointY) {
-        // Vérifier si le point est proche de la ligne (tolérance de 5 pixels)
-        double tolerance = 5.0;
-        double lineLength = Math.sqrt(Math.pow(endX - x, 2) + Math.pow(endY - y, 2));
+        double tolerance = HIT_TOLERANCE;
+        
+        // Rejet rapide par le rectangle englobant élargi de la tolérance
+        if (!boundsContain(pointX, pointY, tolerance)) return false;
         
+        // Vérifier si le point est proche de la ligne
+        double lineLength = getLength();
         if (lineLength == 0) return false;
         
         double distance = Math.abs((endY - y) * pointX - (endX - x) * pointY + endX * y - endY * x) / lineLength;
+        if (distance > tolerance) return false;
         
         // Vérifier aussi que le point est dans les limites de la ligne
-        double minX = Math.min(x, endX) - tolerance;
-        double maxX = Math.max(x, endX) + tolerance;
-        double minY = Math.min(y, endY) - tolerance;
-        double maxY = Math.max(y, endY) + tolerance;
-        
-        return distance <= tolerance && pointX >= minX && pointX <= maxX && pointY >= minY && pointY <= maxY;
+        return pointX >= Math.min(x, endX) - tolerance && pointX <= Math.max(x, endX) + tolerance
+                && pointY >= Math.min(y, endY) - tolerance && pointY <= Math.max(y, endY) + tolerance;
+    }
+    
+    @Override
+    protected Rectangle2D computeBounds() {
+        // Les extrémités carrées débordent du segment
+        double pad = getStrokeWidth() + AA_MARGIN;
+        double minX = Math.min(x, endX) - pad;
+        double minY = Math.min(y, endY) - pad;
+        double maxX = Math.max(x, endX) + pad;
+        double maxY = Math.max(y, endY) + pad;
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+    
+    @Override
+    protected void invalidateBounds() {
+        super.invalidateBounds();
+        length = Double.NaN;
+    }
+    
+    public double getLength() {
+        if (Double.isNaN(length)) {
+            double dx = endX - x;
+            double dy = endY - y;
+            length = Math.sqrt(dx * dx + dy * dy);
+        }
+        return length;
+    }
+    
+    @Override
+    public String getTypeName() {
+        return "Line";
     }
     
     @Override
     public String toStringRepresentation() {
         return String.format("Line[startX=%.2f,startY=%.2f,endX=%.2f,endY=%.2f,color=%s,strokeWidth=%.2f]",
-                x, y, endX, endY, color.toString(), strokeWidth);
+                x, y, endX, endY, getColor().toString(), getStrokeWidth());
     }
     
     // Getters et setters
     public double getEndX() { return endX; }
-    public void setEndX(double endX) { this.endX = endX; }
+    public void setEndX(double endX) { this.endX = endX; invalidateBounds(); }
     
     public double getEndY() { return endY; }
-    public void setEndY(double endY) { this.endY = endY; }
+    public void setEndY(double endY) { this.endY = endY; invalidateBounds(); }
 }
@@ -0,0 +1,744 @@
+package model;
+
+import javafx.geometry.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Stockage des formes d'un fichier de dessin .drw projeté en mémoire (MappedByteBuffer)
+ * L'ouverture ne lit que l'en-tête et la table des styles: les pages des enregistrements et
+ * de l'index sont chargées par le système au premier accès, quand la vue touche leur région.
+ * Les formes ajoutées vont dans un stockage en colonnes au-dessus des formes du fichier.
+ * Retirer ou modifier une forme du fichier ne le recopie pas: les lignes retirées sont
+ * marquées dans un masque et les formes modifiées remplacent leur ligne, à son rang.
+ *
+ * Format (petit-boutiste): en-tête de HEADER_SIZE octets, nom UTF-8, table des styles
+ * [ARGB int][épaisseur double], enregistrements de largeur fixe
+ * [type][3 octets libres][style int][clé long][4 double], puis l'index spatial:
+ * rectangles des blocs [4 float] et entrées [enregistrement int][4 float] triées par
+ * proximité (STR), par blocs de BLOCK_SIZE entrées.
+ */
+public class MappedShapeStore implements ShapeStore {
+    public static final String EXTENSION = ".drw";
+
+    private static final int MAGIC = 0x31575244;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int STYLE_SIZE = 4 + 8;
+    private static final int RECORD_SIZE = 1 + 3 + 4 + 8 + 4 * 8;
+    private static final int ENTRY_SIZE = 4 + 4 * 4;
+    private static final int BLOCK_BOUNDS_SIZE = 4 * 4;
+    private static final int BLOCK_SIZE = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private static final byte RECTANGLE = 0;
+    private static final byte CIRCLE = 1;
+    private static final byte LINE = 2;
+
+    private final ByteBuffer buffer;
+    private final Path file;
+    private final String name;
+    private final long drawingId;
+    private final long lastKey;
+    private final int baseCount;
+    // Style (StyleTable) de chaque entrée de la table du fichier
+    private final int[] styleIds;
+    private final int recordsOffset;
+    private final int blockCount;
+    private final int blockBoundsOffset;
+    private final int entriesOffset;
+
+    // Formes ajoutées après l'ouverture, au-dessus de celles du fichier dans l'ordre z
+    private final ColumnarShapeStore appended = new ColumnarShapeStore();
+    // Lignes du fichier retirées et formes remplaçant une ligne modifiée (par ligne)
+    private RemovedRows removed;
+    private final TreeMap<Integer, Shape> replaced = new TreeMap<>();
+    // Stockage qui remplace le fichier après clear (null avant)
+    private ColumnarShapeStore materialized;
+
+    private MappedShapeStore(ByteBuffer buffer, Path file) throws IOException {
+        this.buffer = buffer;
+        this.file = file;
+        int size = buffer.capacity();
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Ce fichier n'est pas un dessin " + EXTENSION + ": " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Version de fichier de dessin non supportée: " + version);
+        }
+        baseCount = buffer.getInt(8);
+        int styleCount = buffer.getInt(12);
+        int blockSize = buffer.getInt(16);
+        int nameLength = buffer.getInt(20);
+        drawingId = buffer.getLong(24);
+        lastKey = buffer.getLong(32);
+        long stylesOffset = buffer.getLong(40);
+        long records = buffer.getLong(48);
+        long index = buffer.getLong(56);
+
+        long blocks = blockSize == BLOCK_SIZE ? (baseCount + (long) BLOCK_SIZE - 1) / BLOCK_SIZE : -1;
+        if (baseCount < 0 || styleCount < 0 || nameLength < 0 || blocks < 0
+                || stylesOffset != HEADER_SIZE + nameLength
+                || records < stylesOffset + (long) styleCount * STYLE_SIZE
+                || index != records + (long) baseCount * RECORD_SIZE
+                || size != index + blocks * BLOCK_BOUNDS_SIZE + (long) baseCount * ENTRY_SIZE) {
+            throw new IOException("Fichier de dessin corrompu: " + file);
+        }
+        removed = new RemovedRows(baseCount);
+        recordsOffset = (int) records;
+        blockCount = (int) blocks;
+        blockBoundsOffset = (int) index;
+        entriesOffset = (int) (index + blocks * BLOCK_BOUNDS_SIZE);
+
+        byte[] nameBytes = new byte[nameLength];
+        buffer.get(HEADER_SIZE, nameBytes);
+        name = new String(nameBytes, StandardCharsets.UTF_8);
+
+        StyleTable styles = StyleTable.getInstance();
+        styleIds = new int[styleCount];
+        for (int i = 0; i < styleCount; i++) {
+            int s = (int) stylesOffset + i * STYLE_SIZE;
+            styleIds[i] = styles.intern(styles.colorOfArgb(buffer.getInt(s)), buffer.getDouble(s + 4));
+        }
+    }
+
+    /**
+     * Projette le fichier en mémoire sans lire les formes
+     * @throws IOException si le fichier est illisible, corrompu ou dépasse 2 Go
+     */
+    public static MappedShapeStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Fichier de dessin tronqué: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fichier de dessin trop volumineux pour être projeté: " + file);
+            }
+            // La projection reste valide après la fermeture du canal
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedShapeStore(buffer, file);
+        }
+    }
+
+    /**
+     * Écrit les formes dans un fichier .drw, remplacé d'un bloc une fois complet
+     * Des clés qui ne croissent pas dans l'ordre z sont renumérotées à partir de 1.
+     */
+    public static void write(Path file, String name, long drawingId, long lastKey, List<Shape> shapes)
+            throws IOException {
+        int count = shapes.size();
+        byte[] types = new byte[count];
+        double[] coords = new double[count * 4];
+        int[] styleOfShape = new int[count];
+        long[] keys = new long[count];
+        float[] bounds = new float[count * 4];
+        Map<Integer, Integer> fileStyles = new HashMap<>();
+        List<Integer> styleOrder = new ArrayList<>();
+        boolean increasing = true;
+        for (int i = 0; i < count; i++) {
+            Shape shape = shapes.get(i);
+            int c = i * 4;
+            coords[c] = shape.getX();
+            coords[c + 1] = shape.getY();
+            if (shape instanceof Rectangle) {
+                types[i] = RECTANGLE;
+                coords[c + 2] = ((Rectangle) shape).getWidth();
+                coords[c + 3] = ((Rectangle) shape).getHeight();
+            } else if (shape instanceof Circle) {
+                types[i] = CIRCLE;
+                coords[c + 2] = ((Circle) shape).getRadius();
+            } else if (shape instanceof Line) {
+                types[i] = LINE;
+                coords[c + 2] = ((Line) shape).getEndX();
+                coords[c + 3] = ((Line) shape).getEndY();
+            } else {
+                throw new IllegalArgumentException("Type de forme non supporté: " + shape.getTypeName());
+            }
+            styleOfShape[i] = fileStyles.computeIfAbsent(shape.getStyleId(), id -> {
+                styleOrder.add(id);
+                return styleOrder.size() - 1;
+            });
+            keys[i] = shape.getKey();
+            increasing &= keys[i] > (i == 0 ? 0 : keys[i - 1]);
+            Rectangle2D b = shape.getBounds();
+            bounds[c] = ColumnarShapeStore.lower(b.getMinX());
+            bounds[c + 1] = ColumnarShapeStore.lower(b.getMinY());
+            bounds[c + 2] = ColumnarShapeStore.upper(b.getMaxX());
+            bounds[c + 3] = ColumnarShapeStore.upper(b.getMaxY());
+        }
+        if (!increasing) {
+            for (int i = 0; i < count; i++) {
+                keys[i] = i + 1;
+            }
+            lastKey = Math.max(lastKey, count);
+        }
+
+        int[] order = strOrder(bounds, count);
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long stylesOffset = HEADER_SIZE + nameBytes.length;
+        // Enregistrements alignés sur 8 octets
+        long records = (stylesOffset + (long) styleOrder.size() * STYLE_SIZE + 7) & ~7L;
+        long index = records + (long) count * RECORD_SIZE;
+        long size = index + (long) blocks * BLOCK_BOUNDS_SIZE + (long) count * ENTRY_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Dessin trop volumineux pour un fichier " + EXTENSION);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(styleOrder.size())
+                    .putInt(BLOCK_SIZE).putInt(nameBytes.length)
+                    .putLong(drawingId).putLong(lastKey)
+                    .putLong(stylesOffset).putLong(records).putLong(index);
+            writeBytes(channel, out, nameBytes);
+
+            StyleTable styles = StyleTable.getInstance();
+            for (int styleId : styleOrder) {
+                ensureRoom(channel, out, STYLE_SIZE);
+                out.putInt(styles.getArgb(styleId)).putDouble(styles.getStrokeWidth(styleId));
+            }
+            for (long offset = stylesOffset + (long) styleOrder.size() * STYLE_SIZE; offset < records; offset++) {
+                ensureRoom(channel, out, 1);
+                out.put((byte) 0);
+            }
+
+            for (int i = 0; i < count; i++) {
+                ensureRoom(channel, out, RECORD_SIZE);
+                int c = i * 4;
+                out.put(types[i]).put((byte) 0).put((byte) 0).put((byte) 0)
+                        .putInt(styleOfShape[i]).putLong(keys[i])
+                        .putDouble(coords[c]).putDouble(coords[c + 1])
+                        .putDouble(coords[c + 2]).putDouble(coords[c + 3]);
+            }
+
+            for (int block = 0; block < blocks; block++) {
+                float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+                for (int i = block * BLOCK_SIZE; i < Math.min(count, (block + 1) * BLOCK_SIZE); i++) {
+                    int b = order[i] * 4;
+                    minX = Math.min(minX, bounds[b]);
+                    minY = Math.min(minY, bounds[b + 1]);
+                    maxX = Math.max(maxX, bounds[b + 2]);
+                    maxY = Math.max(maxY, bounds[b + 3]);
+                }
+                ensureRoom(channel, out, BLOCK_BOUNDS_SIZE);
+                out.putFloat(minX).putFloat(minY).putFloat(maxX).putFloat(maxY);
+            }
+            for (int i = 0; i < count; i++) {
+                ensureRoom(channel, out, ENTRY_SIZE);
+                int b = order[i] * 4;
+                out.putInt(order[i]).putFloat(bounds[b]).putFloat(bounds[b + 1])
+                        .putFloat(bounds[b + 2]).putFloat(bounds[b + 3]);
+            }
+            drain(channel, out);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDrawingId() {
+        return drawingId;
+    }
+
+    /**
+     * Dernière clé attribuée dans le dessin exporté (Drawing.reserveKeys)
+     */
+    public long getLastKey() {
+        return lastKey;
+    }
+
+    /**
+     * Vrai tant que les formes du fichier sont lues à la demande (faux après clear)
+     */
+    public boolean isMapped() {
+        return materialized == null;
+    }
+
+    /**
+     * Nombre d'enregistrements du fichier, lignes retirées comprises
+     */
+    public int getFileShapeCount() {
+        return baseCount;
+    }
+
+    /**
+     * Copie figée des formes ajoutées depuis l'ouverture, sans lire le fichier (tant que isMapped)
+     */
+    public List<Shape> appendedSnapshot() {
+        return appended.snapshot();
+    }
+
+    /**
+     * Lignes du fichier retirées, dans l'ordre
+     */
+    public int[] getRemovedRows() {
+        return removed.rows();
+    }
+
+    /**
+     * Copie figée des formes qui remplacent une ligne modifiée du fichier, par ligne
+     */
+    public Map<Integer, Shape> replacedSnapshot() {
+        Map<Integer, Shape> copy = new TreeMap<>();
+        List<Shape> shapes = ColumnarShapeStore.copyOf(replaced.values());
+        int i = 0;
+        for (int row : replaced.keySet()) {
+            copy.put(row, shapes.get(i++));
+        }
+        return copy;
+    }
+
+    /**
+     * Rétablit les lignes retirées et remplacées relevées par getRemovedRows et replacedSnapshot
+     * (reprise après incident), avant toute autre modification
+     */
+    public void restoreOverlay(int[] removedRows, Map<Integer, Shape> replacedRows) {
+        if (removed.count() > 0 || !replaced.isEmpty() || appended.size() > 0 || materialized != null) {
+            throw new IllegalStateException("Stockage déjà modifié");
+        }
+        for (int row : removedRows) {
+            if (row < 0 || row >= baseCount || removed.contains(row)) {
+                throw new IllegalArgumentException("Ligne retirée invalide: " + row);
+            }
+            removed.add(row);
+        }
+        for (Map.Entry<Integer, Shape> entry : replacedRows.entrySet()) {
+            int row = entry.getKey();
+            if (row < 0 || row >= baseCount || removed.contains(row) || entry.getValue().getKey() != keyAt(row)) {
+                throw new IllegalArgumentException("Ligne remplacée invalide: " + row);
+            }
+            replaced.put(row, entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return materialized != null ? materialized.size() : liveFileCount() + appended.size();
+    }
+
+    @Override
+    public Shape get(int index) {
+        if (materialized != null) return materialized.get(index);
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size());
+        }
+        int live = liveFileCount();
+        return index < live ? fileShape(removed.select(index)) : appended.get(index - live);
+    }
+
+    /**
+     * Une forme du fichier est retrouvée par sa clé (croissante dans l'ordre z)
+     */
+    @Override
+    public int indexOf(Shape shape) {
+        if (materialized != null) return materialized.indexOf(shape);
+        long key = shape.getKey();
+        if (baseCount > 0 && key > 0 && key <= keyAt(baseCount - 1)) {
+            int low = 0, high = baseCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midKey = keyAt(mid);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return removed.contains(mid) ? -1 : mid - removed.rank(mid);
+                }
+            }
+            return -1;
+        }
+        int row = appended.indexOf(shape);
+        return row >= 0 ? liveFileCount() + row : -1;
+    }
+
+    @Override
+    public void add(Shape shape) {
+        if (materialized != null) {
+            materialized.add(shape);
+        } else {
+            appended.add(shape);
+        }
+    }
+
+    @Override
+    public void remove(int index) {
+        if (materialized != null) {
+            materialized.remove(index);
+            return;
+        }
+        int live = liveFileCount();
+        if (index >= live) {
+            appended.remove(index - live);
+            return;
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size());
+        }
+        int row = removed.select(index);
+        removed.add(row);
+        replaced.remove(row);
+    }
+
+    @Override
+    public void updated(int index, Shape shape) {
+        if (materialized != null) {
+            materialized.updated(index, shape);
+            return;
+        }
+        int live = liveFileCount();
+        if (index >= live) {
+            appended.updated(index - live, shape);
+            return;
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size());
+        }
+        replaced.put(removed.select(index), shape);
+    }
+
+    @Override
+    public void clear() {
+        appended.clear();
+        replaced.clear();
+        removed = new RemovedRows(0);
+        materialized = new ColumnarShapeStore();
+    }
+
+    /**
+     * Les formes du fichier sont relues à chaque accès: seuls les masques, les formes
+     * remplacées et la partie ajoutée sont copiés
+     */
+    @Override
+    public List<Shape> snapshot() {
+        if (materialized != null) return materialized.snapshot();
+        List<Shape> added = appended.snapshot();
+        RemovedRows frozenRemoved = removed.copy();
+        Map<Integer, Shape> frozenReplaced = replacedSnapshot();
+        int live = liveFileCount();
+        return Collections.unmodifiableList(new AbstractList<Shape>() {
+            @Override
+            public Shape get(int index) {
+                if (index >= live) {
+                    return added.get(index - live);
+                }
+                int row = frozenRemoved.select(index);
+                Shape shape = frozenReplaced.get(row);
+                return shape != null ? shape : readShape(row);
+            }
+
+            @Override
+            public int size() {
+                return live + added.size();
+            }
+        });
+    }
+
+    @Override
+    public boolean hasFrozenSnapshots() {
+        return true;
+    }
+
+    @Override
+    public List<Shape> query(double minX, double minY, double maxX, double maxY) {
+        if (materialized != null) return materialized.query(minX, minY, maxX, maxY);
+        List<Shape> added = appended.query(minX, minY, maxX, maxY);
+        List<Shape> result = queryFile(minX, minY, maxX, maxY, added.size());
+        result.addAll(added);
+        return result;
+    }
+
+    @Override
+    public Shape findTopmost(double minX, double minY, double maxX, double maxY, Predicate<Shape> test) {
+        if (materialized != null) return materialized.findTopmost(minX, minY, maxX, maxY, test);
+        Shape top = appended.findTopmost(minX, minY, maxX, maxY, test);
+        if (top != null) return top;
+        List<Shape> shapes = queryFile(minX, minY, maxX, maxY, 0);
+        for (int i = shapes.size() - 1; i >= 0; i--) {
+            if (test.test(shapes.get(i))) {
+                return shapes.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formes du fichier qui intersectent la région, dans l'ordre z
+     * L'index du fichier donne les lignes intactes; les formes modifiées ont pu changer
+     * de place et sont testées selon leur rectangle actuel
+     */
+    private List<Shape> queryFile(double minX, double minY, double maxX, double maxY, int extra) {
+        int[] rows = candidateRows(minX, minY, maxX, maxY);
+        List<Shape> result = new ArrayList<>(rows.length + extra);
+        Iterator<Map.Entry<Integer, Shape>> edits = replaced.entrySet().iterator();
+        Map.Entry<Integer, Shape> edit = edits.hasNext() ? edits.next() : null;
+        for (int row : rows) {
+            // Formes modifiées des lignes précédentes
+            while (edit != null && edit.getKey() < row) {
+                addIfIntersects(result, edit.getValue(), minX, minY, maxX, maxY);
+                edit = edits.hasNext() ? edits.next() : null;
+            }
+            if (edit != null && edit.getKey() == row) {
+                continue;
+            }
+            if (!removed.contains(row)) {
+                result.add(readShape(row));
+            }
+        }
+        while (edit != null) {
+            addIfIntersects(result, edit.getValue(), minX, minY, maxX, maxY);
+            edit = edits.hasNext() ? edits.next() : null;
+        }
+        return result;
+    }
+
+    private static void addIfIntersects(List<Shape> result, Shape shape,
+                                        double minX, double minY, double maxX, double maxY) {
+        Rectangle2D b = shape.getBounds();
+        if (b.getMinX() <= maxX && b.getMaxX() >= minX && b.getMinY() <= maxY && b.getMaxY() >= minY) {
+            result.add(shape);
+        }
+    }
+
+    /**
+     * Enregistrements du fichier dont le rectangle intersecte la région, dans l'ordre z
+     * Seuls les rectangles des blocs et les entrées des blocs touchés sont lus
+     */
+    private int[] candidateRows(double minX, double minY, double maxX, double maxY) {
+        int[] rows = new int[16];
+        int found = 0;
+        for (int block = 0; block < blockCount; block++) {
+            if (!intersects(blockBoundsOffset + block * BLOCK_BOUNDS_SIZE, minX, minY, maxX, maxY)) continue;
+            int end = Math.min(baseCount, (block + 1) * BLOCK_SIZE);
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                int entry = entriesOffset + i * ENTRY_SIZE;
+                if (intersects(entry + 4, minX, minY, maxX, maxY)) {
+                    if (found == rows.length) rows = Arrays.copyOf(rows, found * 2);
+                    rows[found++] = buffer.getInt(entry);
+                }
+            }
+        }
+        rows = Arrays.copyOf(rows, found);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    private boolean intersects(int offset, double minX, double minY, double maxX, double maxY) {
+        return buffer.getFloat(offset) <= maxX && buffer.getFloat(offset + 8) >= minX
+                && buffer.getFloat(offset + 4) <= maxY && buffer.getFloat(offset + 12) >= minY;
+    }
+
+    private int liveFileCount() {
+        return baseCount - removed.count();
+    }
+
+    private Shape fileShape(int row) {
+        Shape shape = replaced.get(row);
+        return shape != null ? shape : readShape(row);
+    }
+
+    private long keyAt(int row) {
+        return buffer.getLong(recordsOffset + row * RECORD_SIZE + 8);
+    }
+
+    private Shape readShape(int row) {
+        int r = recordsOffset + row * RECORD_SIZE;
+        int style = buffer.getInt(r + 4);
+        if (style < 0 || style >= styleIds.length) {
+            throw new IllegalStateException("Enregistrement de forme corrompu: " + row);
+        }
+        int styleId = styleIds[style];
+        double c0 = buffer.getDouble(r + 16), c1 = buffer.getDouble(r + 24);
+        double c2 = buffer.getDouble(r + 32), c3 = buffer.getDouble(r + 40);
+        Shape shape;
+        switch (buffer.get(r)) {
+            case RECTANGLE:
+                shape = new Rectangle(c0, c1, c2, c3, styleId);
+                break;
+            case CIRCLE:
+                shape = new Circle(c0, c1, c2, styleId);
+                break;
+            case LINE:
+                shape = new Line(c0, c1, c2, c3, styleId);
+                break;
+            default:
+                throw new IllegalStateException("Enregistrement de forme corrompu: " + row);
+        }
+        shape.setKey(buffer.getLong(r + 8));
+        return shape;
+    }
+
+    /**
+     * Masque des lignes retirées du fichier, avec le nombre de lignes retirées par mot de 64
+     * cumulé dans un arbre de Fenwick: rang et sélection en O(log n), même après de
+     * nombreuses suppressions
+     */
+    private static final class RemovedRows {
+        private final long[] words;
+        // tree[i]: lignes retirées dans les mots (i - (i & -i), i], indices à partir de 1
+        private final int[] tree;
+        private int count;
+
+        RemovedRows(int rows) {
+            words = new long[(rows + 63) >>> 6];
+            tree = new int[words.length + 1];
+        }
+
+        private RemovedRows(RemovedRows other) {
+            words = other.words.clone();
+            tree = other.tree.clone();
+            count = other.count;
+        }
+
+        RemovedRows copy() {
+            return count == 0 ? new RemovedRows(0) : new RemovedRows(this);
+        }
+
+        int count() {
+            return count;
+        }
+
+        boolean contains(int row) {
+            return (words[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void add(int row) {
+            words[row >>> 6] |= 1L << row;
+            count++;
+            for (int i = (row >>> 6) + 1; i < tree.length; i += i & -i) {
+                tree[i]++;
+            }
+        }
+
+        /**
+         * Lignes retirées avant la ligne donnée
+         */
+        int rank(int row) {
+            int word = row >>> 6;
+            int before = 0;
+            for (int i = word; i > 0; i -= i & -i) {
+                before += tree[i];
+            }
+            return before + Long.bitCount(words[word] & ((1L << row) - 1));
+        }
+
+        /**
+         * Ligne du fichier de la index-ième forme restante
+         */
+        int select(int index) {
+            if (count == 0) return index;
+            // Descente dans l'arbre: dernier mot dont les mots précédents gardent au plus index lignes
+            int word = 0, remaining = index;
+            for (int step = Integer.highestOneBit(words.length); step > 0; step >>>= 1) {
+                int next = word + step;
+                if (next <= words.length) {
+                    int live = step * 64 - tree[next];
+                    if (live <= remaining) {
+                        word = next;
+                        remaining -= live;
+                    }
+                }
+            }
+            // remaining-ième bit nul du mot
+            long live = ~words[word];
+            for (int i = 0; i < remaining; i++) {
+                live &= live - 1;
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(live);
+        }
+
+        int[] rows() {
+            int[] rows = new int[count];
+            int n = 0;
+            for (int word = 0; word < words.length; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                    rows[n++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Ordre STR des formes: tranches verticales par centre x, puis blocs par centre y
+     */
+    private static int[] strOrder(float[] bounds, int count) {
+        long[] sortKeys = new long[count];
+        for (int row = 0; row < count; row++) {
+            sortKeys[row] = ColumnarShapeStore.sortKey((bounds[row * 4] + bounds[row * 4 + 2]) / 2, row);
+        }
+        Arrays.sort(sortKeys);
+
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int slices = Math.max(1, (int) Math.ceil(Math.sqrt(blocks)));
+        int sliceSize = (int) Math.ceil((double) blocks / slices) * BLOCK_SIZE;
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(count, start + sliceSize);
+            for (int i = start; i < end; i++) {
+                int row = (int) sortKeys[i];
+                sortKeys[i] = ColumnarShapeStore.sortKey((bounds[row * 4 + 1] + bounds[row * 4 + 3]) / 2, row);
+            }
+            Arrays.sort(sortKeys, start, end);
+        }
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+        return order;
+    }
+
+    private static void writeBytes(FileChannel channel, ByteBuffer out, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRoom(channel, out, 1);
+            int n = Math.min(out.remaining(), bytes.length - offset);
+            out.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer out, int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            drain(channel, out);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
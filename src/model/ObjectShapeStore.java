@@ -0,0 +1,69 @@
+package model;
+
+import javafx.geometry.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Stockage par défaut: une liste d'objets Shape et un R-tree sur leurs rectangles englobants
+ */
+public class ObjectShapeStore implements ShapeStore {
+    private final List<Shape> shapes = new ArrayList<>();
+    // Index spatial des rectangles englobants, ordonné comme la liste (ordre z)
+    private final RTree<Shape> spatialIndex = new RTree<>();
+
+    @Override
+    public int size() {
+        return shapes.size();
+    }
+
+    @Override
+    public Shape get(int index) {
+        return shapes.get(index);
+    }
+
+    @Override
+    public int indexOf(Shape shape) {
+        return shapes.indexOf(shape);
+    }
+
+    @Override
+    public void add(Shape shape) {
+        shapes.add(shape);
+        Rectangle2D bounds = shape.getBounds();
+        spatialIndex.insert(shape, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    @Override
+    public void remove(int index) {
+        spatialIndex.remove(shapes.remove(index));
+    }
+
+    @Override
+    public void updated(int index, Shape shape) {
+        Rectangle2D bounds = shape.getBounds();
+        spatialIndex.update(shape, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    @Override
+    public void clear() {
+        shapes.clear();
+        spatialIndex.clear();
+    }
+
+    @Override
+    public List<Shape> snapshot() {
+        return List.copyOf(shapes);
+    }
+
+    @Override
+    public List<Shape> query(double minX, double minY, double maxX, double maxY) {
+        return spatialIndex.search(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public Shape findTopmost(double minX, double minY, double maxX, double maxY, Predicate<Shape> test) {
+        return spatialIndex.searchTopmost(minX, minY, maxX, maxY, test);
+    }
+}
@@ -0,0 +1,359 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Index spatial R-tree (découpage quadratique de Guttman) sur les rectangles englobants
+ * Chaque entrée reçoit un numéro d'insertion croissant qui sert d'ordre z:
+ * la dernière entrée insérée est celle du dessus
+ */
+public class RTree<T> {
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = MAX_ENTRIES * 2 / 5;
+
+    private Node root;
+    private final Map<T, Entry<T>> entries;
+    private long nextSequence;
+
+    public RTree() {
+        this.root = new Node(true);
+        this.entries = new IdentityHashMap<>();
+        this.nextSequence = 0;
+    }
+
+    /**
+     * Entrée feuille: une valeur, son rectangle englobant et son rang d'insertion
+     */
+    private static final class Entry<T> {
+        final T value;
+        final double minX, minY, maxX, maxY;
+        final long sequence;
+        Node leaf;
+
+        Entry(T value, double minX, double minY, double maxX, double maxY, long sequence) {
+            this.value = value;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Node {
+        final boolean leaf;
+        // Entrées (feuille) ou noeuds enfants (interne)
+        final List<Object> children = new ArrayList<>(MAX_ENTRIES + 1);
+        Node parent;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void recomputeBounds() {
+            minX = minY = Double.POSITIVE_INFINITY;
+            maxX = maxY = Double.NEGATIVE_INFINITY;
+            for (Object child : children) {
+                include(child);
+            }
+        }
+
+        void include(Object child) {
+            minX = Math.min(minX, minX(child));
+            minY = Math.min(minY, minY(child));
+            maxX = Math.max(maxX, maxX(child));
+            maxY = Math.max(maxY, maxY(child));
+        }
+    }
+
+    public void insert(T value, double minX, double minY, double maxX, double maxY) {
+        if (entries.containsKey(value)) {
+            remove(value);
+        }
+        insertEntry(new Entry<>(value, minX, minY, maxX, maxY, nextSequence++));
+    }
+
+    /**
+     * Met à jour le rectangle d'une valeur en conservant son rang dans l'ordre z
+     */
+    public void update(T value, double minX, double minY, double maxX, double maxY) {
+        Entry<T> old = entries.get(value);
+        if (old == null) {
+            insert(value, minX, minY, maxX, maxY);
+            return;
+        }
+        long next = nextSequence;
+        remove(value);
+        nextSequence = next;
+        insertEntry(new Entry<>(value, minX, minY, maxX, maxY, old.sequence));
+    }
+
+    private void insertEntry(Entry<T> entry) {
+        entries.put(entry.value, entry);
+        Node leaf = chooseLeaf(root, entry);
+        leaf.children.add(entry);
+        entry.leaf = leaf;
+        adjustTree(leaf);
+    }
+
+    public boolean remove(T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry == null) return false;
+
+        Node leaf = entry.leaf;
+        leaf.children.remove(entry);
+        condenseTree(leaf);
+
+        // Raccourcir la racine si elle n'a plus qu'un enfant
+        while (!root.leaf && root.children.size() == 1) {
+            root = (Node) root.children.get(0);
+            root.parent = null;
+        }
+        if (entries.isEmpty()) {
+            clear();
+        }
+        return true;
+    }
+
+    public boolean contains(T value) {
+        return entries.containsKey(value);
+    }
+
+    public void clear() {
+        root = new Node(true);
+        entries.clear();
+        nextSequence = 0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retourne les valeurs dont le rectangle intersecte la région, dans l'ordre z
+     */
+    public List<T> search(double minX, double minY, double maxX, double maxY) {
+        List<Entry<T>> found = new ArrayList<>();
+        collect(root, minX, minY, maxX, maxY, found);
+        found.sort(Comparator.comparingLong(e -> e.sequence));
+
+        List<T> result = new ArrayList<>(found.size());
+        for (Entry<T> entry : found) {
+            result.add(entry.value);
+        }
+        return result;
+    }
+
+    /**
+     * Retourne la valeur la plus haute dans l'ordre z dont le rectangle
+     * intersecte la région et qui satisfait le test exact
+     */
+    public T searchTopmost(double minX, double minY, double maxX, double maxY, Predicate<T> test) {
+        List<Entry<T>> found = new ArrayList<>();
+        collect(root, minX, minY, maxX, maxY, found);
+        found.sort(Comparator.comparingLong((Entry<T> e) -> e.sequence).reversed());
+
+        for (Entry<T> entry : found) {
+            if (test.test(entry.value)) {
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(Node node, double minX, double minY, double maxX, double maxY, List<Entry<T>> out) {
+        for (Object child : node.children) {
+            if (!intersects(child, minX, minY, maxX, maxY)) continue;
+            if (node.leaf) {
+                out.add((Entry<T>) child);
+            } else {
+                collect((Node) child, minX, minY, maxX, maxY, out);
+            }
+        }
+    }
+
+    private Node chooseLeaf(Node node, Entry<T> entry) {
+        while (!node.leaf) {
+            Node best = null;
+            double bestEnlargement = Double.POSITIVE_INFINITY;
+            double bestArea = Double.POSITIVE_INFINITY;
+            for (Object child : node.children) {
+                Node candidate = (Node) child;
+                double area = area(candidate.minX, candidate.minY, candidate.maxX, candidate.maxY);
+                double enlarged = area(Math.min(candidate.minX, entry.minX), Math.min(candidate.minY, entry.minY),
+                        Math.max(candidate.maxX, entry.maxX), Math.max(candidate.maxY, entry.maxY));
+                double enlargement = enlarged - area;
+                if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                    best = candidate;
+                    bestEnlargement = enlargement;
+                    bestArea = area;
+                }
+            }
+            node = best;
+        }
+        return node;
+    }
+
+    /**
+     * Remonte depuis le noeud modifié en découpant les noeuds pleins et en ajustant les rectangles
+     */
+    private void adjustTree(Node node) {
+        while (node != null) {
+            if (node.children.size() > MAX_ENTRIES) {
+                Node sibling = split(node);
+                if (node.parent == null) {
+                    Node newRoot = new Node(false);
+                    newRoot.children.add(node);
+                    newRoot.children.add(sibling);
+                    node.parent = newRoot;
+                    sibling.parent = newRoot;
+                    newRoot.recomputeBounds();
+                    root = newRoot;
+                    return;
+                }
+                node.parent.children.add(sibling);
+                sibling.parent = node.parent;
+            } else {
+                node.recomputeBounds();
+            }
+            node = node.parent;
+        }
+    }
+
+    private void condenseTree(Node node) {
+        List<Entry<T>> orphans = new ArrayList<>();
+        while (node != root) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_ENTRIES) {
+                parent.children.remove(node);
+                collectEntries(node, orphans);
+            } else {
+                node.recomputeBounds();
+            }
+            node = parent;
+        }
+        if (!root.leaf && root.children.isEmpty()) {
+            root = new Node(true);
+        }
+        root.recomputeBounds();
+
+        // Réinsérer les entrées des noeuds supprimés en conservant leur rang
+        for (Entry<T> orphan : orphans) {
+            Node leaf = chooseLeaf(root, orphan);
+            leaf.children.add(orphan);
+            orphan.leaf = leaf;
+            adjustTree(leaf);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectEntries(Node node, List<Entry<T>> out) {
+        for (Object child : node.children) {
+            if (node.leaf) {
+                out.add((Entry<T>) child);
+            } else {
+                collectEntries((Node) child, out);
+            }
+        }
+    }
+
+    /**
+     * Découpage quadratique: les deux éléments les plus éloignés servent de germes
+     */
+    @SuppressWarnings("unchecked")
+    private Node split(Node node) {
+        List<Object> pending = new ArrayList<>(node.children);
+        node.children.clear();
+        Node sibling = new Node(node.leaf);
+
+        // Choisir les germes qui gaspillent le plus de surface ensemble
+        int seedA = 0, seedB = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pending.size(); i++) {
+            for (int j = i + 1; j < pending.size(); j++) {
+                Object a = pending.get(i), b = pending.get(j);
+                double waste = area(Math.min(minX(a), minX(b)), Math.min(minY(a), minY(b)),
+                        Math.max(maxX(a), maxX(b)), Math.max(maxY(a), maxY(b)))
+                        - area(minX(a), minY(a), maxX(a), maxY(a)) - area(minX(b), minY(b), maxX(b), maxY(b));
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+        Object a = pending.get(seedA);
+        Object b = pending.get(seedB);
+        pending.remove(seedB);
+        pending.remove(seedA);
+        attach(node, a);
+        attach(sibling, b);
+        node.recomputeBounds();
+        sibling.recomputeBounds();
+
+        while (!pending.isEmpty()) {
+            // Garantir le remplissage minimal de chaque groupe
+            if (node.children.size() + pending.size() == MIN_ENTRIES) {
+                for (Object rest : pending) attach(node, rest);
+                break;
+            }
+            if (sibling.children.size() + pending.size() == MIN_ENTRIES) {
+                for (Object rest : pending) attach(sibling, rest);
+                break;
+            }
+
+            Object next = pending.remove(pending.size() - 1);
+            double growA = enlargement(node, next);
+            double growB = enlargement(sibling, next);
+            Node target;
+            if (growA != growB) {
+                target = growA < growB ? node : sibling;
+            } else {
+                target = node.children.size() <= sibling.children.size() ? node : sibling;
+            }
+            attach(target, next);
+            target.include(next);
+        }
+
+        node.recomputeBounds();
+        sibling.recomputeBounds();
+        return sibling;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attach(Node node, Object child) {
+        node.children.add(child);
+        if (node.leaf) {
+            ((Entry<T>) child).leaf = node;
+        } else {
+            ((Node) child).parent = node;
+        }
+    }
+
+    private static double enlargement(Node node, Object child) {
+        return area(Math.min(node.minX, minX(child)), Math.min(node.minY, minY(child)),
+                Math.max(node.maxX, maxX(child)), Math.max(node.maxY, maxY(child)))
+                - area(node.minX, node.minY, node.maxX, node.maxY);
+    }
+
+    private static boolean intersects(Object child, double minX, double minY, double maxX, double maxY) {
+        return minX(child) <= maxX && maxX(child) >= minX && minY(child) <= maxY && maxY(child) >= minY;
+    }
+
+    private static double area(double minX, double minY, double maxX, double maxY) {
+        return (maxX - minX) * (maxY - minY);
+    }
+
+    private static double minX(Object o) { return o instanceof Node ? ((Node) o).minX : ((Entry<?>) o).minX; }
+    private static double minY(Object o) { return o instanceof Node ? ((Node) o).minY : ((Entry<?>) o).minY; }
+    private static double maxX(Object o) { return o instanceof Node ? ((Node) o).maxX : ((Entry<?>) o).maxX; }
+    private static double maxY(Object o) { return o instanceof Node ? ((Node) o).maxY : ((Entry<?>) o).maxY; }
+}
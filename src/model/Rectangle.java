@@ -1,5 +1,6 @@
 package model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
@@ -10,15 +11,19 @@ public class Rectangle extends Shape {
     private double width, height;
     
     public Rectangle(double x, double y, double width, double height, Color color, double strokeWidth) {
-        super(x, y, color, strokeWidth);
+        this(x, y, width, height, StyleTable.getInstance().intern(color, strokeWidth));
+    }
+    
+    public Rectangle(double x, double y, double width, double height, int styleId) {
+        super(x, y, styleId);
         this.width = width;
         this.height = height;
     }
     
     @Override
     public void draw(GraphicsContext gc) {
-        gc.setStroke(color);
-        gc.setLineWidth(strokeWidth);
+        gc.setStroke(getColor());
+        gc.setLineWidth(getStrokeWidth());
         gc.strokeRect(x, y, width, height);
     }
     
@@ -28,16 +33,27 @@ public class Rectangle extends Shape {
                pointY >= y && pointY <= y + height;
     }
     
+    @Override
+    protected Rectangle2D computeBounds() {
+        double half = getStrokeWidth() / 2 + AA_MARGIN;
+        return new Rectangle2D(x - half, y - half, width + 2 * half, height + 2 * half);
+    }
+    
+    @Override
+    public String getTypeName() {
+        return "Rectangle";
+    }
+    
     @Override
     public String toStringRepresentation() {
         return String.format("Rectangle[x=%.2f,y=%.2f,width=%.2f,height=%.2f,color=%s,strokeWidth=%.2f]",
-                x, y, width, height, color.toString(), strokeWidth);
+                x, y, width, height, getColor().toString(), getStrokeWidth());
     }
     
     // Getters et setters
     public double getWidth() { return width; }
-    public void setWidth(double width) { this.width = width; }
+    public void setWidth(double width) { this.width = width; invalidateBounds(); }
     
     public double getHeight() { return height; }
-    public void setHeight(double height) { this.height = height; }
+    public void setHeight(double height) { this.height = height; invalidateBounds(); }
 }
@@ -1,5 +1,6 @@
 package model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
@@ -7,15 +8,25 @@ import javafx.scene.paint.Color;
  * Classe abstraite représentant une forme géométrique
  */
 public abstract class Shape {
+    // Marge pour l'anticrénelage autour du trait
+    protected static final double AA_MARGIN = 1.0;
+    
     protected double x, y;
-    protected Color color;
-    protected double strokeWidth;
+    // Couleur et épaisseur du trait, partagées via la StyleTable
+    protected int styleId;
+    // Rectangle englobant en cache, invalidé par les setters
+    private Rectangle2D bounds;
+    // Clé stable dans le dessin, croissante dans l'ordre z (0: jamais ajoutée)
+    private long key;
     
     public Shape(double x, double y, Color color, double strokeWidth) {
+        this(x, y, StyleTable.getInstance().intern(color, strokeWidth));
+    }
+    
+    public Shape(double x, double y, int styleId) {
         this.x = x;
         this.y = y;
-        this.color = color;
-        this.strokeWidth = strokeWidth;
+        this.styleId = styleId;
     }
     
     // Méthode abstraite pour dessiner la forme
@@ -24,20 +35,57 @@ public abstract class Shape {
     // Méthode abstraite pour vérifier si un point est dans la forme
     public abstract boolean contains(double x, double y);
     
+    // Calcul du rectangle englobant de la forme, épaisseur du trait incluse
+    protected abstract Rectangle2D computeBounds();
+    
+    /**
+     * Rectangle englobant de la forme, recalculé seulement après une modification
+     */
+    public final Rectangle2D getBounds() {
+        if (bounds == null) {
+            bounds = computeBounds();
+        }
+        return bounds;
+    }
+    
+    // À appeler par tout setter qui change l'étendue de la forme
+    protected void invalidateBounds() {
+        bounds = null;
+    }
+    
+    // Rejet rapide: le point est-il dans le rectangle englobant élargi de la marge
+    protected boolean boundsContain(double pointX, double pointY, double margin) {
+        Rectangle2D b = getBounds();
+        return pointX >= b.getMinX() - margin && pointX <= b.getMaxX() + margin
+                && pointY >= b.getMinY() - margin && pointY <= b.getMaxY() + margin;
+    }
+    
     // Méthode pour obtenir une représentation string de la forme
     public abstract String toStringRepresentation();
     
+    // Nom du type persisté (indépendant de la classe concrète, ex. vues du stockage en colonnes)
+    public abstract String getTypeName();
+    
     // Getters et setters
     public double getX() { return x; }
-    public void setX(double x) { this.x = x; }
+    public void setX(double x) { this.x = x; invalidateBounds(); }
     
     public double getY() { return y; }
-    public void setY(double y) { this.y = y; }
+    public void setY(double y) { this.y = y; invalidateBounds(); }
+    
+    public Color getColor() { return StyleTable.getInstance().getColor(styleId); }
+    public void setColor(Color color) { this.styleId = StyleTable.getInstance().intern(color, getStrokeWidth()); }
+    
+    public double getStrokeWidth() { return StyleTable.getInstance().getStrokeWidth(styleId); }
+    public void setStrokeWidth(double strokeWidth) {
+        this.styleId = StyleTable.getInstance().intern(getColor(), strokeWidth);
+        invalidateBounds();
+    }
     
-    public Color getColor() { return color; }
-    public void setColor(Color color) { this.color = color; }
+    public int getStyleId() { return styleId; }
     
-    public double getStrokeWidth() { return strokeWidth; }
-    public void setStrokeWidth(double strokeWidth) { this.strokeWidth = strokeWidth; }
+    public long getKey() { return key; }
+    // Réservé au dessin et à la persistance (clé attribuée à l'ajout ou relue en base)
+    public void setKey(long key) { this.key = key; }
 
 }
@@ -0,0 +1,59 @@
+package model;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Stockage des formes d'un dessin (pattern Strategy)
+ * Conserve l'ordre z (ordre d'ajout) et répond aux requêtes spatiales.
+ * Implémentations: objets (ObjectShapeStore), colonnes de primitives (ColumnarShapeStore)
+ * et fichier .drw projeté en mémoire (MappedShapeStore)
+ */
+public interface ShapeStore {
+
+    int size();
+
+    /**
+     * Forme au rang donné dans l'ordre z
+     */
+    Shape get(int index);
+
+    /**
+     * Rang de la forme, ou -1 si elle n'est pas dans le stockage
+     */
+    int indexOf(Shape shape);
+
+    void add(Shape shape);
+
+    void remove(int index);
+
+    /**
+     * La forme au rang donné vient d'être modifiée: mettre à jour le stockage et l'index
+     */
+    void updated(int index, Shape shape);
+
+    void clear();
+
+    /**
+     * Copie immuable, utilisable depuis un autre thread
+     */
+    List<Shape> snapshot();
+
+    /**
+     * Vrai si les formes de snapshot sont des copies, insensibles aux modifications en place
+     */
+    default boolean hasFrozenSnapshots() {
+        return false;
+    }
+
+    /**
+     * Formes dont le rectangle englobant intersecte la région, dans l'ordre z
+     */
+    List<Shape> query(double minX, double minY, double maxX, double maxY);
+
+    /**
+     * Forme la plus haute dans l'ordre z dont le rectangle intersecte la région
+     * et qui satisfait le test exact
+     */
+    Shape findTopmost(double minX, double minY, double maxX, double maxY, Predicate<Shape> test);
+}
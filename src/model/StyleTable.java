@@ -0,0 +1,124 @@
+package model;
+
+import javafx.scene.paint.Color;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table partagée des styles de trait (pattern Flyweight + Singleton)
+ * Chaque couple (couleur, épaisseur) distinct reçoit un petit identifiant entier:
+ * les formes ne stockent que cet identifiant et les rendus comparent des entiers
+ * au lieu de couleurs. Utilisable depuis plusieurs threads (chargement en arrière-plan).
+ */
+public final class StyleTable {
+    private static final StyleTable INSTANCE = new StyleTable();
+
+    /**
+     * Style internalisé, immuable
+     */
+    public static final class Style {
+        private final Color color;
+        private final double strokeWidth;
+        private final int argb;
+
+        private Style(Color color, double strokeWidth) {
+            this.color = color;
+            this.strokeWidth = strokeWidth;
+            this.argb = ((int) Math.round(color.getOpacity() * 255) << 24)
+                    | ((int) Math.round(color.getRed() * 255) << 16)
+                    | ((int) Math.round(color.getGreen() * 255) << 8)
+                    | (int) Math.round(color.getBlue() * 255);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Style)) return false;
+            Style other = (Style) o;
+            return Double.compare(strokeWidth, other.strokeWidth) == 0 && color.equals(other.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(color, strokeWidth);
+        }
+    }
+
+    private final Map<Style, Integer> ids = new ConcurrentHashMap<>();
+    // Lecture sans verrou: le tableau est remplacé (jamais modifié en place) quand il grandit
+    private volatile Style[] styles = new Style[16];
+    private int count;
+    // Couleurs déjà analysées, par chaîne (Color.web est coûteux et alloue à chaque appel)
+    private final Map<String, Color> parsedColors = new ConcurrentHashMap<>();
+    // Idem pour les couleurs lues en ARGB (format binaire)
+    private final Map<Integer, Color> argbColors = new ConcurrentHashMap<>();
+
+    private StyleTable() {
+    }
+
+    public static StyleTable getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Identifiant du style (couleur, épaisseur), créé au premier usage
+     */
+    public int intern(Color color, double strokeWidth) {
+        Style style = new Style(Objects.requireNonNull(color, "color"), strokeWidth);
+        Integer id = ids.get(style);
+        return id != null ? id : register(style);
+    }
+
+    private synchronized int register(Style style) {
+        Integer existing = ids.get(style);
+        if (existing != null) return existing;
+
+        Style[] current = styles;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+        }
+        int id = count;
+        current[id] = style;
+        count++;
+        // Publier le tableau avant l'id: un lecteur qui voit l'id voit le style
+        styles = current;
+        ids.put(style, id);
+        return id;
+    }
+
+    /**
+     * Analyse une couleur (format Color.web) en réutilisant l'instance déjà créée
+     */
+    public Color parseColor(String value) {
+        return parsedColors.computeIfAbsent(value, Color::web);
+    }
+
+    /**
+     * Couleur correspondant à une valeur ARGB 8 bits, en réutilisant l'instance déjà créée
+     */
+    public Color colorOfArgb(int argb) {
+        return argbColors.computeIfAbsent(argb, value -> Color.rgb(
+                (value >> 16) & 0xFF, (value >> 8) & 0xFF, value & 0xFF, (value >>> 24) / 255.0));
+    }
+
+    public Color getColor(int styleId) {
+        return styles[styleId].color;
+    }
+
+    public double getStrokeWidth(int styleId) {
+        return styles[styleId].strokeWidth;
+    }
+
+    /**
+     * Couleur du style en ARGB 8 bits, pour la rastérisation logicielle
+     */
+    public int getArgb(int styleId) {
+        return styles[styleId].argb;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,91 @@
+package test;
+
+import database.DatabaseManager;
+import database.ShapeStorageMode;
+import model.ColumnarShapeStore;
+import model.Drawing;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Mesure des latences de chargement et de liste des dessins avec les réglages SQLite
+ * Utilise une base temporaire (propriété drawing.db.url) contenant des dessins de
+ * 1 000, 100 000 et 1 000 000 formes dans chaque mode de stockage, plus de nombreux
+ * petits dessins pour la liste et la recherche par nom.
+ */
+public class DatabaseTuningBenchmark {
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    // Petits dessins ajoutés pour que la liste et la recherche par nom aient du volume
+    private static final int SMALL_DRAWINGS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : SIZES[SIZES.length - 1];
+        Path dir = Files.createTempDirectory("drawing-bench");
+        System.setProperty(DatabaseManager.DB_URL_PROPERTY, "jdbc:sqlite:" + dir.resolve("bench.db"));
+        DatabaseManager db = DatabaseManager.getInstance();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < SMALL_DRAWINGS; i++) {
+                Drawing drawing = new Drawing("petit-" + i);
+                drawing.addShapes(TestShapes.generate(1, i));
+                db.saveDrawing(drawing);
+            }
+            System.out.printf("%d petits dessins enregistrés: %8.1f ms%n", SMALL_DRAWINGS,
+                    (System.nanoTime() - start) / 1e6);
+
+            for (ShapeStorageMode mode : ShapeStorageMode.values()) {
+                db.setStorageMode(mode);
+                System.out.println("=== Mode " + mode + " ===");
+                for (int size : SIZES) {
+                    if (size > maxSize) {
+                        continue;
+                    }
+                    String name = mode + "-" + size;
+                    Drawing drawing = new Drawing(new ColumnarShapeStore(size));
+                    drawing.setName(name);
+                    drawing.addShapes(TestShapes.generate(size, 42));
+                    start = System.nanoTime();
+                    db.saveDrawing(drawing);
+                    double saveMillis = (System.nanoTime() - start) / 1e6;
+
+                    int runs = size >= 1_000_000 ? 2 : size >= 100_000 ? 3 : 20;
+                    double best = Double.MAX_VALUE;
+                    for (int run = 0; run < runs; run++) {
+                        start = System.nanoTime();
+                        Drawing loaded = db.loadDrawing(name);
+                        best = Math.min(best, (System.nanoTime() - start) / 1e6);
+                        if (loaded.getShapeCount() != size) {
+                            throw new IllegalStateException(name + ": " + loaded.getShapeCount() + " formes relues");
+                        }
+                    }
+                    System.out.printf("%,10d formes: sauvegarde %9.1f ms, chargement %9.1f ms%n",
+                            size, saveMillis, best);
+                }
+            }
+
+            int runs = 200;
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                db.loadDrawing("petit-" + (i * 7 % SMALL_DRAWINGS));
+            }
+            System.out.printf("Chargement d'un petit dessin par nom: %8.3f ms%n", (System.nanoTime() - start) / 1e6 / runs);
+
+            start = System.nanoTime();
+            int listed = 0;
+            for (int i = 0; i < runs; i++) {
+                listed = db.getDrawingNames().size();
+            }
+            System.out.printf("Liste des dessins (%d):             %8.3f ms%n", listed, (System.nanoTime() - start) / 1e6 / runs);
+        } finally {
+            db.close();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package test;
+
+import model.ColumnarShapeStore;
+import model.Drawing;
+import model.MappedShapeStore;
+import model.Shape;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Mesure de l'ouverture d'un fichier .drw projeté en mémoire
+ * Compare l'ouverture (en-tête seulement), la première requête sur une petite fenêtre
+ * (seules les pages touchées sont lues) et la lecture complète des formes.
+ * Vérifie aussi que le fichier relu est identique au dessin écrit.
+ */
+public class DrwFileBenchmark {
+    // Fenêtre de vue typique (en unités du dessin, sur une surface de 10 000 x 10 000)
+    private static final double VIEW = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Fichier .drw: " + count + " formes ===");
+
+        Drawing source = new Drawing(new ColumnarShapeStore(count));
+        source.addShapes(TestShapes.generate(count, 42));
+        Path file = Files.createTempFile("benchmark", MappedShapeStore.EXTENSION);
+        try {
+            long start = System.nanoTime();
+            MappedShapeStore.write(file, "benchmark", 1, source.getLastKey(), source.snapshot());
+            System.out.printf("Écriture:               %8.1f ms  (%d Mo)%n", (System.nanoTime() - start) / 1e6,
+                    Files.size(file) >> 20);
+
+            start = System.nanoTime();
+            MappedShapeStore store = MappedShapeStore.open(file);
+            System.out.printf("Ouverture:              %8.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            int visible = store.query(4_500, 4_500, 4_500 + VIEW, 4_500 + VIEW).size();
+            System.out.printf("Première vue:           %8.2f ms  (%d formes)%n", (System.nanoTime() - start) / 1e6,
+                    visible);
+
+            start = System.nanoTime();
+            List<Shape> all = store.snapshot();
+            int checked = 0;
+            for (int i = 0; i < all.size(); i++) {
+                Shape expected = source.getShapesView().get(i);
+                Shape actual = all.get(i);
+                if (!expected.getTypeName().equals(actual.getTypeName()) || expected.getX() != actual.getX()
+                        || expected.getY() != actual.getY() || expected.getStyleId() != actual.getStyleId()
+                        || !expected.getBounds().equals(actual.getBounds()) || expected.getKey() != actual.getKey()) {
+                    throw new IllegalStateException("Forme " + i + " différente après relecture");
+                }
+                checked++;
+            }
+            System.out.printf("Lecture et vérification:%8.1f ms  (%d formes identiques)%n",
+                    (System.nanoTime() - start) / 1e6, checked);
+
+            List<Shape> expected = source.queryRegion(4_500, 4_500, 4_500 + VIEW, 4_500 + VIEW);
+            if (expected.size() != visible) {
+                throw new IllegalStateException("Requête spatiale: " + visible + " au lieu de " + expected.size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package test;
+
+import database.DatabaseManager;
+import database.ShapeCodec;
+import database.ShapeDecodePipeline;
+import model.Shape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Mesure du décodage parallèle des formes selon le nombre de décodeurs
+ * Les données brutes (blocs compressés, lignes texte de l'ancien format) sont
+ * préparées en mémoire: seule l'étape CPU du chargement est mesurée, sans SQLite.
+ * Le gain attendu est borné par le nombre de cœurs disponibles.
+ */
+public class ParallelDecodeBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== Décodage parallèle: " + count + " formes, " + cores + " cœur(s) ===");
+
+        List<Shape> shapes = TestShapes.generate(count, 42);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int from = 0; from < count; from += DatabaseManager.SHAPES_PER_CHUNK) {
+            chunks.add(ShapeCodec.encodeChunk(shapes, from, Math.min(from + DatabaseManager.SHAPES_PER_CHUNK, count)));
+        }
+        List<String[]> rows = new ArrayList<>();
+        for (Shape shape : shapes) {
+            rows.add(new String[] {shape.getTypeName(), shape.toStringRepresentation()});
+        }
+
+        TreeSet<Integer> levels = new TreeSet<>(List.of(1, 2, 4, cores, cores * 2));
+        run("Blocs compressés", levels, count, parallelism -> decodeChunks(chunks, count, parallelism));
+        run("Lignes texte", levels, count, parallelism -> decodeRows(rows, parallelism));
+    }
+
+    private interface Decoder {
+        List<Shape> decode(int parallelism);
+    }
+
+    private static void run(String label, TreeSet<Integer> levels, int count, Decoder decoder) {
+        System.out.println("\n" + label);
+        // Préchauffage
+        for (int i = 0; i < 3; i++) {
+            decoder.decode(levels.last());
+        }
+
+        double baseline = 0;
+        for (int parallelism : levels) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                long start = System.nanoTime();
+                List<Shape> decoded = decoder.decode(parallelism);
+                best = Math.min(best, System.nanoTime() - start);
+                if (decoded.size() != count) {
+                    throw new IllegalStateException("Formes perdues: " + decoded.size());
+                }
+            }
+            double ms = best / 1e6;
+            if (parallelism == 1) {
+                baseline = ms;
+            }
+            System.out.printf("  %2d décodeur(s): %8.1f ms  (x%.2f)%n", parallelism, ms, baseline / ms);
+        }
+    }
+
+    private static List<Shape> decodeChunks(List<byte[]> chunks, int count, int parallelism) {
+        List<Shape> out = new ArrayList<>(count);
+        try (ShapeDecodePipeline pipeline = new ShapeDecodePipeline(parallelism, DatabaseManager.SHAPES_PER_CHUNK,
+                count, (page, loaded, total) -> out.addAll(page) || true)) {
+            for (byte[] chunk : chunks) {
+                pipeline.submit(() -> {
+                    List<Shape> decoded = new ArrayList<>(DatabaseManager.SHAPES_PER_CHUNK);
+                    ShapeCodec.decodeChunk(chunk, 0, decoded);
+                    return decoded;
+                }, DatabaseManager.SHAPES_PER_CHUNK);
+            }
+            pipeline.finish();
+        }
+        return out;
+    }
+
+    private static List<Shape> decodeRows(List<String[]> rows, int parallelism) {
+        int pageSize = DatabaseManager.SHAPES_PER_CHUNK;
+        List<Shape> out = new ArrayList<>(rows.size());
+        try (ShapeDecodePipeline pipeline = new ShapeDecodePipeline(parallelism, pageSize,
+                rows.size(), (page, loaded, total) -> out.addAll(page) || true)) {
+            for (int from = 0; from < rows.size(); from += pageSize) {
+                List<String[]> batch = rows.subList(from, Math.min(from + pageSize, rows.size()));
+                pipeline.submit(() -> {
+                    List<Shape> decoded = new ArrayList<>(batch.size());
+                    for (String[] row : batch) {
+                        decoded.add(ShapeCodec.parseText(row[0], row[1]));
+                    }
+                    return decoded;
+                }, batch.size());
+            }
+            pipeline.finish();
+        }
+        return out;
+    }
+}
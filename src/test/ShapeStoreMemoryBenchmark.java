@@ -0,0 +1,98 @@
+package test;
+
+import javafx.scene.paint.Color;
+import model.Circle;
+import model.ColumnarShapeStore;
+import model.Drawing;
+import model.Line;
+import model.ObjectShapeStore;
+import model.Rectangle;
+import model.Shape;
+import model.ShapeStore;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Empreinte mémoire et temps de requête des deux stockages de formes
+ * Lancer avec un tas suffisant, par exemple: java -Xmx2g test.ShapeStoreMemoryBenchmark 1000000
+ */
+public class ShapeStoreMemoryBenchmark {
+    private static final double WORLD_SIZE = 100_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println("=== Stockage des formes: " + count + " formes ===");
+
+        run("Objets (ArrayList + R-tree)", ObjectShapeStore::new, count);
+        run("Colonnes de primitives", () -> new ColumnarShapeStore(count), count);
+    }
+
+    private static void run(String label, Supplier<ShapeStore> store, int count) {
+        long before = usedMemory();
+        Drawing drawing = new Drawing(store.get());
+        Random random = new Random(42);
+        // Les formes arrivent une par une, comme au chargement d'un dessin
+        for (int i = 0; i < count; i++) {
+            drawing.addShape(randomShape(random));
+        }
+        long bytes = usedMemory() - before;
+
+        // La première requête construit l'index du stockage en colonnes
+        long start = System.nanoTime();
+        drawing.getShapeAt(0, 0);
+        long firstNanos = System.nanoTime() - start;
+
+        Random queries = new Random(7);
+        start = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (drawing.getShapeAt(queries.nextDouble() * WORLD_SIZE, queries.nextDouble() * WORLD_SIZE) != null) {
+                hits++;
+            }
+        }
+        long hitNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < 100; i++) {
+            double x = queries.nextDouble() * WORLD_SIZE;
+            double y = queries.nextDouble() * WORLD_SIZE;
+            found += drawing.queryRegion(x, y, x + 2000, y + 2000).size();
+        }
+        long queryNanos = System.nanoTime() - start;
+
+        System.out.println("\n--- " + label + " ---");
+        System.out.printf("Mémoire: %.1f Mo (%d octets par forme)%n", bytes / 1e6, bytes / count);
+        System.out.printf("Première requête: %.1f ms%n", firstNanos / 1e6);
+        System.out.printf("1000 tests de sélection: %.1f ms (%d formes touchées)%n", hitNanos / 1e6, hits);
+        System.out.printf("100 requêtes de région: %.1f ms (%d formes)%n", queryNanos / 1e6, found);
+
+        // Garder le dessin vivant jusqu'à la fin de la mesure
+        if (drawing.getShapeCount() != count) {
+            throw new IllegalStateException("Nombre de formes inattendu");
+        }
+    }
+
+    private static Shape randomShape(Random random) {
+        double x = random.nextDouble() * WORLD_SIZE;
+        double y = random.nextDouble() * WORLD_SIZE;
+        // Couleurs lues comme au chargement: une instance par forme
+        Color color = Color.web(String.format("#%06x", random.nextInt(8) * 0x1F1F1F));
+        switch (random.nextInt(3)) {
+            case 0:
+                return new Rectangle(x, y, random.nextDouble() * 100, random.nextDouble() * 100, color, 2.0);
+            case 1:
+                return new Circle(x, y, random.nextDouble() * 50, color, 1.0);
+            default:
+                return new Line(x, y, x + random.nextDouble() * 100, y + random.nextDouble() * 100, color, 3.0);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
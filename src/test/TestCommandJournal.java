@@ -0,0 +1,292 @@
+package test;
+
+import command.AddShapeCommand;
+import command.CommandJournal;
+import command.CommandManager;
+import command.RemoveShapeCommand;
+import javafx.scene.paint.Color;
+import model.Circle;
+import model.ColumnarShapeStore;
+import model.Drawing;
+import model.MappedShapeStore;
+import model.Rectangle;
+import model.Shape;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Test du journal de reprise après incident
+ * Exécution, annulation et rétablissement puis arrêt brutal (sans close) et reprise,
+ * journal tronqué au milieu d'un enregistrement, journal d'une génération antérieure au
+ * point de reprise, historique d'un dessin en colonnes et point de reprise d'un fichier .drw
+ * projeté. Utilise un répertoire temporaire.
+ */
+public class TestCommandJournal {
+    // Laisse au thread d'écriture le temps de forcer les enregistrements sur disque
+    private static final long SETTLE_MILLIS = 20 * CommandJournal.GROUP_COMMIT_MILLIS;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test du journal de reprise ===");
+        Path dir = Files.createTempDirectory("journal-test");
+        try {
+            System.out.println("\n--- Stockage objet ---");
+            testCrashRecovery(dir.resolve("objet"), Drawing::new);
+            System.out.println("\n--- Stockage en colonnes ---");
+            testCrashRecovery(dir.resolve("colonnes"), () -> new Drawing(new ColumnarShapeStore()));
+            System.out.println("\n--- Journal tronqué ---");
+            testTruncatedJournal(dir.resolve("tronque"));
+            System.out.println("\n--- Journal périmé ---");
+            testStaleJournal(dir.resolve("perime"));
+            System.out.println("\n--- Fichier .drw projeté ---");
+            testMappedCheckpoint(dir.resolve("projete"));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("\n=== Test réussi ! Le journal de reprise fonctionne correctement ===");
+        } else {
+            System.out.println("\n=== " + failures + " vérification(s) en échec ===");
+            System.exit(1);
+        }
+    }
+
+    private static void testCrashRecovery(Path dir, Supplier<Drawing> drawings) throws Exception {
+        Session live = new Session(dir, drawings.get());
+        live.open();
+        Random random = new Random(7);
+        for (int i = 0; i < 3_000; i++) {
+            randomCommand(live, random);
+            if (i == 1_500) {
+                live.drawing.setName("renommé");
+                live.drawing.setId(42);
+                live.journal.recordIdentity();
+            }
+        }
+        // Point de reprise intermédiaire: la suite n'est que dans le journal
+        live.journal.checkpoint();
+        for (int i = 0; i < 500; i++) {
+            randomCommand(live, random);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+
+        Session recovered = new Session(dir, drawings.get());
+        check(recovered.recover(), "reprise après arrêt brutal");
+        check(describe(recovered.drawing).equals(describe(live.drawing)),
+                "formes reprises: " + recovered.drawing.getShapeCount());
+        check(recovered.drawing.getName().equals("renommé") && recovered.drawing.getId() == 42,
+                "nom et identifiant repris");
+        check(recovered.drawing.getLastKey() == live.drawing.getLastKey(), "dernière clé reprise");
+        checkSameHistory(live, recovered);
+        live.journal.close();
+        check(!Files.exists(live.journalPath) && !Files.exists(live.checkpointPath),
+                "fichiers supprimés à la fermeture");
+    }
+
+    private static void testTruncatedJournal(Path dir) throws Exception {
+        Session live = new Session(dir, new Drawing());
+        live.open();
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            randomCommand(live, random);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+        List<String> beforeLast = describe(live.drawing);
+        long complete = Files.size(live.journalPath);
+        live.commandManager.executeCommand(new AddShapeCommand(live.drawing, new Circle(1, 2, 3, Color.RED, 1)));
+        Thread.sleep(SETTLE_MILLIS);
+
+        // Arrêt au milieu de l'écriture du dernier enregistrement
+        long torn = complete + (Files.size(live.journalPath) - complete) / 2;
+        try (FileChannel channel = FileChannel.open(live.journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(torn);
+        }
+        Session recovered = new Session(dir, new Drawing());
+        check(recovered.recover(), "reprise d'un journal tronqué");
+        check(describe(recovered.drawing).equals(beforeLast), "enregistrement incomplet ignoré");
+        check(!recovered.drawing.getShapesView().isEmpty(), "enregistrements complets rejoués");
+
+        // Fin corrompue: longueur annoncée sans contenu
+        Files.write(live.journalPath, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        recovered = new Session(dir, new Drawing());
+        check(recovered.recover(), "reprise d'un journal à fin corrompue");
+        check(describe(recovered.drawing).equals(beforeLast), "fin corrompue ignorée");
+        live.journal.close();
+    }
+
+    private static void testStaleJournal(Path dir) throws Exception {
+        Session live = new Session(dir, new Drawing());
+        live.open();
+        Random random = new Random(13);
+        for (int i = 0; i < 200; i++) {
+            randomCommand(live, random);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+        Path stale = dir.resolve("ancien.journal");
+        Files.copy(live.journalPath, stale);
+
+        // Le point de reprise contient déjà ces opérations et change de génération
+        live.journal.checkpoint();
+        Thread.sleep(SETTLE_MILLIS);
+        List<String> expected = describe(live.drawing);
+        Files.copy(stale, live.journalPath, StandardCopyOption.REPLACE_EXISTING);
+
+        Session recovered = new Session(dir, new Drawing());
+        check(recovered.recover(), "reprise avec un journal d'une génération antérieure");
+        check(describe(recovered.drawing).equals(expected), "journal périmé ignoré");
+        checkSameHistory(live, recovered);
+        live.journal.close();
+    }
+
+    private static void testMappedCheckpoint(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("dessin" + MappedShapeStore.EXTENSION);
+        MappedShapeStore.write(file, "projeté", 9, 5_000, TestShapes.generate(5_000, 3));
+
+        Session live = new Session(dir, new Drawing());
+        live.open();
+        open(live.drawing, file);
+        live.commandManager.clear();
+        Random random = new Random(17);
+        for (int i = 0; i < 300; i++) {
+            randomCommand(live, random);
+        }
+        // Modification directe d'une forme du fichier: seul le point de reprise la contient
+        Shape edited = live.drawing.getShapesView().get(10);
+        live.drawing.updateShape(edited, shape -> shape.setX(shape.getX() + 5));
+        live.journal.checkpoint();
+        for (int i = 0; i < 100; i++) {
+            randomCommand(live, random);
+        }
+        Thread.sleep(SETTLE_MILLIS);
+        check(live.drawing.getMappedStore() != null, "fichier toujours projeté après modifications");
+        check(Files.size(live.checkpointPath) < Files.size(file) / 4,
+                "point de reprise réduit: " + Files.size(live.checkpointPath) + " octets");
+
+        Session recovered = new Session(dir, new Drawing());
+        check(recovered.recover(), "reprise d'un fichier projeté");
+        check(recovered.drawing.getMappedStore() != null, "fichier projeté après reprise");
+        check(describe(recovered.drawing).equals(describe(live.drawing)),
+                "formes reprises: " + recovered.drawing.getShapeCount());
+        checkSameHistory(live, recovered);
+
+        // Fichier remplacé depuis le point de reprise: reprise refusée, dessin intact
+        MappedShapeStore.write(file, "projeté", 9, 5_001, TestShapes.generate(5_001, 3));
+        Drawing untouched = new Drawing();
+        untouched.addShape(new Circle(1, 1, 1, Color.RED, 1));
+        try {
+            new CommandJournal(live.journalPath, live.checkpointPath, untouched, new CommandManager()).recover();
+            check(false, "fichier remplacé refusé");
+        } catch (IOException e) {
+            check(untouched.getShapeCount() == 1, "fichier remplacé refusé, dessin intact");
+        }
+        live.journal.close();
+    }
+
+    /**
+     * Ouvre un fichier .drw comme le contrôleur
+     */
+    private static void open(Drawing drawing, Path file) throws IOException {
+        MappedShapeStore store = MappedShapeStore.open(file);
+        drawing.replaceStore(store);
+        drawing.reserveKeys(store.getLastKey());
+        drawing.setName(store.getName());
+        drawing.setId(store.getDrawingId());
+    }
+
+    private static void randomCommand(Session session, Random random) {
+        Drawing drawing = session.drawing;
+        CommandManager commands = session.commandManager;
+        int op = random.nextInt(10);
+        if (op < 6 || drawing.isEmpty()) {
+            commands.executeCommand(new AddShapeCommand(drawing, new Rectangle(random.nextInt(500),
+                    random.nextInt(500), 1 + random.nextInt(50), 3.25, Color.rgb(random.nextInt(255), 0, 0),
+                    1 + random.nextInt(3))));
+        } else if (op < 7) {
+            Shape shape = drawing.getShapesView().get(random.nextInt(drawing.getShapeCount()));
+            commands.executeCommand(new RemoveShapeCommand(drawing, shape));
+        } else if (op < 9) {
+            commands.undo();
+        } else {
+            commands.redo();
+        }
+    }
+
+    /**
+     * Les historiques repris désignent les formes du dessin repris: annuler et rétablir
+     * de part et d'autre donnent les mêmes dessins
+     */
+    private static void checkSameHistory(Session live, Session recovered) {
+        boolean same = true;
+        for (int i = 0; i < 40 && same; i++) {
+            if (i % 3 == 2) {
+                live.commandManager.redo();
+                recovered.commandManager.redo();
+            } else {
+                live.commandManager.undo();
+                recovered.commandManager.undo();
+            }
+            same = describe(recovered.drawing).equals(describe(live.drawing));
+        }
+        check(same, "historique repris");
+    }
+
+    private static List<String> describe(Drawing drawing) {
+        List<String> lines = new ArrayList<>(drawing.getShapeCount());
+        for (Shape shape : drawing.getShapesView()) {
+            lines.add(shape.getKey() + " " + shape.toStringRepresentation());
+        }
+        return lines;
+    }
+
+    private static void check(boolean condition, String message) {
+        System.out.println((condition ? "OK     " : "ÉCHEC  ") + message);
+        if (!condition) {
+            failures++;
+        }
+    }
+
+    /**
+     * Dessin, historique et journal d'une session
+     */
+    private static final class Session {
+        final Path journalPath;
+        final Path checkpointPath;
+        final Drawing drawing;
+        final CommandManager commandManager = new CommandManager();
+        final CommandJournal journal;
+
+        Session(Path dir, Drawing drawing) throws IOException {
+            Files.createDirectories(dir);
+            this.journalPath = dir.resolve(CommandJournal.JOURNAL_FILE);
+            this.checkpointPath = dir.resolve(CommandJournal.CHECKPOINT_FILE);
+            this.drawing = drawing;
+            this.journal = new CommandJournal(journalPath, checkpointPath, drawing, commandManager);
+        }
+
+        boolean recover() throws IOException {
+            return journal.recover();
+        }
+
+        void open() throws IOException {
+            journal.recover();
+            journal.open();
+        }
+    }
+}
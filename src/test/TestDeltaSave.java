@@ -0,0 +1,217 @@
+package test;
+
+import database.DatabaseManager;
+import database.ShapePageListener;
+import database.ShapeStorageMode;
+import database.StaleChangesException;
+import javafx.scene.paint.Color;
+import model.Circle;
+import model.Drawing;
+import model.DrawingChanges;
+import model.Shape;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Test de la sauvegarde incrémentale dans les deux modes de stockage
+ * Aller-retour en base d'un dessin modifié (mise à jour, suppression de part et d'autre
+ * d'une limite de bloc, ajouts qui complètent puis dépassent le dernier bloc), retour à une
+ * sauvegarde complète quand la base a changé, et dessin dont le chargement a été interrompu.
+ * Utilise une base temporaire (propriété drawing.db.url).
+ */
+public class TestDeltaSave {
+    private static final int SHAPES = 10_000;
+    private static final int PAGE = DatabaseManager.SHAPES_PER_CHUNK;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test de la sauvegarde incrémentale ===");
+        Path dir = Files.createTempDirectory("drawing-test");
+        System.setProperty(DatabaseManager.DB_URL_PROPERTY, "jdbc:sqlite:" + dir.resolve("test.db"));
+        DatabaseManager db = DatabaseManager.getInstance();
+        try {
+            for (ShapeStorageMode mode : ShapeStorageMode.values()) {
+                db.setStorageMode(mode);
+                System.out.println("\n--- Mode " + mode + " ---");
+                testDeltaRoundTrip(db, mode);
+                testModeChangeIsStale(db, mode);
+                testCancelledLoad(db, mode);
+            }
+            db.setStorageMode(ShapeStorageMode.CHUNKS);
+            System.out.println("\n--- Modifications concurrentes (CHUNKS) ---");
+            testStaleFallback(db);
+        } finally {
+            db.close();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+
+        if (failures == 0) {
+            System.out.println("\n=== Test réussi ! La sauvegarde incrémentale fonctionne correctement ===");
+        } else {
+            System.out.println("\n=== " + failures + " vérification(s) en échec ===");
+            System.exit(1);
+        }
+    }
+
+    private static void testDeltaRoundTrip(DatabaseManager db, ShapeStorageMode mode) throws SQLException {
+        String name = "delta-" + mode;
+        save(db, name, SHAPES);
+        Drawing drawing = db.loadDrawing(name);
+
+        // Blocs enregistrés: [1..4096], [4097..8192], [8193..10000]
+        drawing.updateShape(byKey(drawing, 11), shape -> shape.setX(shape.getX() + 1));
+        drawing.updateShape(byKey(drawing, 9_000), shape -> shape.setColor(Color.CYAN));
+        drawing.removeShape(byKey(drawing, PAGE));
+        drawing.removeShape(byKey(drawing, PAGE + 1));
+        // Complète le dernier bloc (2288 places) puis en crée un nouveau
+        drawing.addShapes(TestShapes.generate(3_000, 2));
+
+        DrawingChanges changes = drawing.takeChanges();
+        check(!changes.isFull(), "sauvegarde incrémentale");
+        check(changes.size() == 2 + 2 + 3_000, "formes écrites: " + changes.size());
+        db.saveChanges(name, changes);
+        check(describe(db.loadDrawing(name)).equals(describe(drawing)), "relecture après modifications");
+
+        // Deuxième passe sur les blocs réécrits
+        drawing.removeShape(byKey(drawing, SHAPES + 1));
+        drawing.updateShape(byKey(drawing, PAGE + 2), shape -> shape.setY(shape.getY() - 1));
+        db.saveDrawing(drawing);
+        check(describe(db.loadDrawing(name)).equals(describe(drawing)), "relecture après une deuxième sauvegarde");
+    }
+
+    private static void testModeChangeIsStale(DatabaseManager db, ShapeStorageMode mode) throws SQLException {
+        String name = "mode-" + mode;
+        save(db, name, 1_000);
+        Drawing drawing = db.loadDrawing(name);
+        drawing.removeShape(byKey(drawing, 1));
+        DrawingChanges changes = drawing.takeChanges();
+
+        db.setStorageMode(mode == ShapeStorageMode.ROWS ? ShapeStorageMode.CHUNKS : ShapeStorageMode.ROWS);
+        try {
+            db.saveChanges(name, changes);
+            check(false, "changement de mode refusé");
+        } catch (StaleChangesException e) {
+            check(true, "changement de mode refusé");
+        }
+        drawing.requireFullSave();
+        db.saveDrawing(drawing);
+        check(describe(db.loadDrawing(name)).equals(describe(drawing)), "sauvegarde complète dans l'autre mode");
+        db.setStorageMode(mode);
+    }
+
+    /**
+     * Deux copies du même dessin: la seconde modifie une forme que la première a supprimée
+     */
+    private static void testStaleFallback(DatabaseManager db) throws SQLException {
+        String name = "concurrent";
+        save(db, name, SHAPES);
+        Drawing first = db.loadDrawing(name);
+        Drawing second = db.loadDrawing(name);
+
+        first.removeShape(byKey(first, 5_000));
+        db.saveDrawing(first);
+        second.updateShape(byKey(second, 5_000), shape -> shape.setX(0));
+        db.saveDrawing(second);
+        check(!second.hasUnsavedChanges(), "sauvegarde complète après refus");
+        check(describe(db.loadDrawing(name)).equals(describe(second)), "la dernière sauvegarde l'emporte");
+    }
+
+    private static void testCancelledLoad(DatabaseManager db, ShapeStorageMode mode) throws SQLException {
+        String name = "partiel-" + mode;
+        List<Shape> saved = save(db, name, SHAPES);
+
+        // Comme DrawingLoadTask: annulé après la première page
+        Drawing drawing = new Drawing(name);
+        drawing.setId(0);
+        db.streamDrawing(name, PAGE, new ShapePageListener() {
+            @Override
+            public void onStart(long drawingId, long lastKey) {
+                drawing.setId(drawingId);
+                drawing.reserveKeys(lastKey);
+                drawing.markSaved();
+            }
+
+            @Override
+            public boolean onPage(List<Shape> page, long loaded, long total) {
+                drawing.addSavedShapes(page);
+                return false;
+            }
+        });
+        drawing.markPartial();
+        check(drawing.getShapeCount() == PAGE, "première page seulement: " + drawing.getShapeCount());
+
+        Circle circle = new Circle(10, 10, 5, Color.RED, 1);
+        drawing.addShape(circle);
+        check(circle.getKey() == SHAPES + 1, "clé après les clés enregistrées: " + circle.getKey());
+        db.saveDrawing(drawing);
+        List<String> expected = describe(saved);
+        expected.add(describe(List.of(circle)).get(0));
+        check(describe(db.loadDrawing(name)).equals(expected), "ajout après annulation");
+
+        // Une sauvegarde complète (après un échec par exemple) garde les formes non chargées
+        drawing.removeShape(byKey(drawing, 1));
+        drawing.requireFullSave();
+        db.saveDrawing(drawing);
+        expected.remove(0);
+        check(describe(db.loadDrawing(name)).equals(expected), "sauvegarde complète d'un dessin partiel");
+
+        // Annulé avant la première page: rien ne relie le dessin à sa version enregistrée
+        Drawing empty = new Drawing(name);
+        empty.setId(0);
+        empty.markPartial();
+        empty.addShape(new Circle(1, 1, 1, Color.BLUE, 1));
+        try {
+            db.saveDrawing(empty);
+            check(false, "sauvegarde refusée sans chargement");
+        } catch (SQLException e) {
+            check(true, "sauvegarde refusée sans chargement");
+        }
+        check(describe(db.loadDrawing(name)).equals(expected), "dessin enregistré intact");
+    }
+
+    private static List<Shape> save(DatabaseManager db, String name, int count) throws SQLException {
+        Drawing drawing = new Drawing(name);
+        drawing.addShapes(TestShapes.generate(count, 1));
+        db.saveDrawing(drawing);
+        return drawing.getShapes();
+    }
+
+    private static Shape byKey(Drawing drawing, long key) {
+        for (Shape shape : drawing.getShapesView()) {
+            if (shape.getKey() == key) {
+                return shape;
+            }
+        }
+        throw new IllegalArgumentException("Aucune forme de clé " + key);
+    }
+
+    private static List<String> describe(Drawing drawing) {
+        return describe(drawing.getShapesView());
+    }
+
+    private static List<String> describe(List<Shape> shapes) {
+        List<String> lines = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes) {
+            lines.add(shape.getKey() + " " + shape.toStringRepresentation());
+        }
+        return lines;
+    }
+
+    private static void check(boolean condition, String message) {
+        System.out.println((condition ? "OK     " : "ÉCHEC  ") + message);
+        if (!condition) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package test;
+
+import model.RTree;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Test de l'index spatial R-tree
+ * Suites aléatoires d'insertions, réinsertions, mises à jour et suppressions comparées à un
+ * parcours exhaustif: résultats de search dans l'ordre z, forme du dessus retenue par
+ * searchTopmost, taille et appartenance. Une mise à jour garde le rang dans l'ordre z,
+ * une réinsertion place la valeur au-dessus.
+ */
+public class TestRTree {
+    private static final int OPERATIONS = 20_000;
+    private static final double WORLD = 1_000;
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        System.out.println("=== Test de l'index spatial R-tree ===");
+        for (long seed : new long[] {1, 2, 3}) {
+            System.out.println("\n--- Graine " + seed + " ---");
+            testRandomOperations(seed);
+        }
+        System.out.println("\n--- Vidage puis réutilisation ---");
+        testEmptyAndRefill();
+
+        if (failures == 0) {
+            System.out.println("\n=== Test réussi ! Le R-tree est conforme au parcours exhaustif ===");
+        } else {
+            System.out.println("\n=== " + failures + " vérification(s) en échec ===");
+            System.exit(1);
+        }
+    }
+
+    private static void testRandomOperations(long seed) {
+        Random random = new Random(seed);
+        RTree<Box> tree = new RTree<>();
+        // Référence: valeurs présentes, de la plus basse à la plus haute dans l'ordre z
+        List<Box> zOrder = new ArrayList<>();
+        int nextId = 0;
+        int mismatches = 0;
+        int queries = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || zOrder.isEmpty()) {
+                Box box = new Box(nextId++);
+                box.place(random);
+                tree.insert(box, box.minX, box.minY, box.maxX, box.maxY);
+                zOrder.add(box);
+            } else if (op < 6) {
+                // Réinsertion d'une valeur présente: elle passe au-dessus
+                Box box = zOrder.remove(random.nextInt(zOrder.size()));
+                box.place(random);
+                tree.insert(box, box.minX, box.minY, box.maxX, box.maxY);
+                zOrder.add(box);
+            } else if (op < 8) {
+                Box box = zOrder.get(random.nextInt(zOrder.size()));
+                box.place(random);
+                tree.update(box, box.minX, box.minY, box.maxX, box.maxY);
+            } else {
+                Box box = zOrder.remove(random.nextInt(zOrder.size()));
+                if (!tree.remove(box) || tree.remove(box)) {
+                    mismatches++;
+                }
+            }
+
+            if (i % 50 == 0) {
+                mismatches += compare(tree, zOrder, random);
+                queries++;
+            }
+        }
+        check(mismatches == 0, OPERATIONS + " opérations, " + queries + " séries de requêtes: "
+                + mismatches + " écart(s)");
+        check(tree.size() == zOrder.size(), "taille: " + tree.size());
+        boolean members = true;
+        for (Box box : zOrder) {
+            members &= tree.contains(box);
+        }
+        check(members && !tree.contains(new Box(-1)), "appartenance");
+    }
+
+    private static void testEmptyAndRefill() {
+        Random random = new Random(4);
+        RTree<Box> tree = new RTree<>();
+        List<Box> zOrder = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Box box = new Box(i);
+            box.place(random);
+            tree.insert(box, box.minX, box.minY, box.maxX, box.maxY);
+            zOrder.add(box);
+        }
+        while (!zOrder.isEmpty()) {
+            tree.remove(zOrder.remove(random.nextInt(zOrder.size())));
+        }
+        check(tree.size() == 0 && tree.search(0, 0, WORLD, WORLD).isEmpty(), "index vide après suppressions");
+
+        for (int i = 0; i < 2_000; i++) {
+            Box box = new Box(i);
+            box.place(random);
+            tree.insert(box, box.minX, box.minY, box.maxX, box.maxY);
+            zOrder.add(box);
+        }
+        int mismatches = 0;
+        for (int i = 0; i < 100; i++) {
+            mismatches += compare(tree, zOrder, random);
+        }
+        check(mismatches == 0, "réutilisation après vidage: " + mismatches + " écart(s)");
+    }
+
+    /**
+     * Compare une région et un point tirés au hasard au parcours exhaustif
+     * @return nombre d'écarts
+     */
+    private static int compare(RTree<Box> tree, List<Box> zOrder, Random random) {
+        int mismatches = 0;
+        double minX = random.nextInt((int) WORLD);
+        double minY = random.nextInt((int) WORLD);
+        double maxX = minX + random.nextInt(200);
+        double maxY = minY + random.nextInt(200);
+        List<Box> expected = new ArrayList<>();
+        for (Box box : zOrder) {
+            if (box.intersects(minX, minY, maxX, maxY)) {
+                expected.add(box);
+            }
+        }
+        if (!tree.search(minX, minY, maxX, maxY).equals(expected)) {
+            mismatches++;
+        }
+
+        // Point de clic: la plus haute qui passe le test exact
+        double x = random.nextDouble() * WORLD;
+        double y = random.nextDouble() * WORLD;
+        Predicate<Box> test = box -> box.id % 3 != 0;
+        Box topmost = null;
+        for (int i = zOrder.size() - 1; i >= 0 && topmost == null; i--) {
+            Box box = zOrder.get(i);
+            if (box.intersects(x, y, x, y) && test.test(box)) {
+                topmost = box;
+            }
+        }
+        if (tree.searchTopmost(x, y, x, y, test) != topmost) {
+            mismatches++;
+        }
+        return mismatches;
+    }
+
+    private static void check(boolean condition, String message) {
+        System.out.println((condition ? "OK     " : "ÉCHEC  ") + message);
+        if (!condition) {
+            failures++;
+        }
+    }
+
+    /**
+     * Valeur indexée et son rectangle courant
+     */
+    private static final class Box {
+        final int id;
+        double minX, minY, maxX, maxY;
+
+        Box(int id) {
+            this.id = id;
+        }
+
+        void place(Random random) {
+            // Coordonnées entières: des bords se touchent exactement
+            minX = random.nextInt((int) WORLD);
+            minY = random.nextInt((int) WORLD);
+            maxX = minX + random.nextInt(40);
+            maxY = minY + random.nextInt(40);
+        }
+
+        boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import javafx.scene.paint.Color;
+import model.Circle;
+import model.Line;
+import model.Rectangle;
+import model.Shape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Formes de test communes aux mesures et aux vérifications
+ * Rectangles, cercles et lignes en alternance, répartis sur une surface de 10 000 x 10 000;
+ * la même graine donne toujours les mêmes formes.
+ */
+public final class TestShapes {
+    public static final Color[] PALETTE = {
+        Color.BLACK, Color.RED, Color.BLUE, Color.GREEN, Color.ORANGE, Color.PURPLE
+    };
+    public static final double WORLD_SIZE = 10_000;
+
+    private TestShapes() {
+    }
+
+    /**
+     * Style tiré au hasard pour chaque forme
+     */
+    public static List<Shape> generate(int count, long seed) {
+        return generate(count, 1, seed);
+    }
+
+    /**
+     * @param runLength nombre de formes consécutives de même style (séries tracées par l'utilisateur)
+     */
+    public static List<Shape> generate(int count, int runLength, long seed) {
+        Random random = new Random(seed);
+        List<Shape> shapes = new ArrayList<>(count);
+        Color color = PALETTE[0];
+        double width = 1;
+        for (int i = 0; i < count; i++) {
+            if (i % runLength == 0) {
+                color = PALETTE[random.nextInt(PALETTE.length)];
+                width = 1 + random.nextInt(3);
+            }
+            double x = random.nextDouble() * WORLD_SIZE;
+            double y = random.nextDouble() * WORLD_SIZE;
+            switch (i % 3) {
+                case 0:
+                    shapes.add(new Rectangle(x, y, 5 + random.nextDouble() * 40, 5 + random.nextDouble() * 40, color, width));
+                    break;
+                case 1:
+                    shapes.add(new Circle(x, y, 2 + random.nextDouble() * 20, color, width));
+                    break;
+                default:
+                    shapes.add(new Line(x, y, x + random.nextDouble() * 50, y + random.nextDouble() * 50, color, width));
+                    break;
+            }
+        }
+        return shapes;
+    }
+}
@@ -5,6 +5,8 @@ import strategy.ConsoleLoggingStrategy;
 
 /**
  * Classe Logger utilisant le Strategy Pattern
+ * Utilisable depuis plusieurs threads (écriture en base, journal de reprise): les messages
+ * sont transmis un par un à la stratégie courante.
  */
 public class Logger {
     private static Logger instance;
@@ -14,37 +16,37 @@ public class Logger {
         this.strategy = new ConsoleLoggingStrategy(); // Stratégie par défaut
     }
     
-    public static Logger getInstance() {
+    public static synchronized Logger getInstance() {
         if (instance == null) {
             instance = new Logger();
         }
         return instance;
     }
     
-    public void setStrategy(LoggingStrategy strategy) {
+    public synchronized void setStrategy(LoggingStrategy strategy) {
         this.strategy = strategy;
         log("Stratégie de journalisation changée vers: " + strategy.getStrategyName());
     }
     
-    public void log(String message) {
+    public synchronized void log(String message) {
         if (strategy != null) {
             strategy.log(message);
         }
     }
     
-    public void logAction(String action, String details) {
+    public synchronized void logAction(String action, String details) {
         if (strategy != null) {
             strategy.logAction(action, details);
         }
     }
     
-    public void logError(String error) {
+    public synchronized void logError(String error) {
         if (strategy != null) {
             strategy.logError(error);
         }
     }
     
-    public String getCurrentStrategyName() {
+    public synchronized String getCurrentStrategyName() {
         return strategy != null ? strategy.getStrategyName() : "Aucune stratégie";
     }
 }
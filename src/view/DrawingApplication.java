@@ -1,6 +1,7 @@
 package view;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -53,9 +54,11 @@ public class DrawingApplication extends Application {
         primaryStage.setOnCloseRequest(e -> {
             logger.log("Fermeture de l'application");
             controller.cleanup();
+            canvas.getTileCache().dispose();
         });
 
         primaryStage.show();
+        controller.recoverSession();
         logger.log("Application démarrée avec succès");
     }
 
@@ -67,14 +70,25 @@ public class DrawingApplication extends Application {
         MenuItem newItem = new MenuItem("Nouveau");
         MenuItem saveItem = new MenuItem("Enregistrer");
         MenuItem openItem = new MenuItem("Ouvrir");
+        MenuItem openFileItem = new MenuItem("Ouvrir un fichier...");
+        MenuItem exportItem = new MenuItem("Exporter...");
         MenuItem exitItem = new MenuItem("Quitter");
 
         newItem.setOnAction(e -> controller.newDrawing());
         saveItem.setOnAction(e -> controller.saveDrawing());
         openItem.setOnAction(e -> controller.openDrawing());
-        exitItem.setOnAction(e -> System.exit(0));
+        openFileItem.setOnAction(e -> controller.openDrawingFile());
+        exportItem.setOnAction(e -> controller.exportDrawingFile());
+        // Même fermeture que la fenêtre: le journal de reprise n'a pas à être rejoué
+        exitItem.setOnAction(e -> {
+            logger.log("Fermeture de l'application");
+            controller.cleanup();
+            canvas.getTileCache().dispose();
+            Platform.exit();
+        });
 
-        fileMenu.getItems().addAll(newItem, saveItem, openItem, new SeparatorMenuItem(), exitItem);
+        fileMenu.getItems().addAll(newItem, saveItem, openItem, new SeparatorMenuItem(),
+                openFileItem, exportItem, new SeparatorMenuItem(), exitItem);
 
         // Menu Edition
         Menu editMenu = new Menu("Edition");
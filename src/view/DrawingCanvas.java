@@ -2,36 +2,70 @@ package view;
 
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import controller.DrawingController;
+import model.CoalescingDrawingListener;
+import model.DrawingEvent;
+import model.DrawingListener;
 import model.Shape;
-import java.util.Observable;
-import java.util.Observer;
 
 /**
  * Canvas de dessin utilisant le pattern Observer
  */
-@SuppressWarnings("deprecation")
-public class DrawingCanvas extends Pane implements Observer {
+public class DrawingCanvas extends Pane implements DrawingListener {
+    // Au-delà de ce nombre de formes modifiées en un lot, tout est redessiné
+    private static final int BULK_REPAINT_THRESHOLD = 64;
+    // Facteur de zoom par unité de défilement de la molette
+    private static final double ZOOM_PER_SCROLL_UNIT = 1.0015;
+    
     private Canvas canvas;
     private GraphicsContext gc;
     private DrawingController controller;
+    // Transformation monde → écran (translation + zoom)
+    private Viewport viewport;
+    // Tuiles pré-rendues de la scène validée
+    private TileCache tileCache;
+    private RepaintManager repaintManager;
+    // Calque des éléments éphémères, le canvas principal ne contient que les formes validées
+    private OverlayLayer overlay;
+    // Les notifications du modèle sont fusionnées puis rendues une fois par image
+    private CoalescingDrawingListener pendingChanges;
+    private RenderScheduler renderScheduler;
+    // Position de départ du geste en coordonnées écran
     private double startX, startY;
     private boolean isDrawing = false;
+    private boolean isPanning = false;
+    private double lastPanX, lastPanY;
+    // Dernière position de glissement pas encore affichée (les positions intermédiaires sont ignorées)
+    private boolean previewPending = false;
+    private double previewX, previewY;
     
     public DrawingCanvas(DrawingController controller) {
         this.controller = controller;
         
         canvas = new Canvas(800, 600);
         gc = canvas.getGraphicsContext2D();
+        viewport = new Viewport();
+        tileCache = new TileCache();
+        repaintManager = new RepaintManager(viewport, tileCache);
+        // Les tuiles rendues en parallèle sont recopiées à l'image suivante
+        tileCache.setOnTileReady(tileWorld -> {
+            repaintManager.markExposed(tileWorld);
+            renderScheduler.requestRender();
+        });
+        overlay = new OverlayLayer(canvas.getWidth(), canvas.getHeight(), viewport);
+        pendingChanges = new CoalescingDrawingListener(this::applyChanges);
+        renderScheduler = new RenderScheduler(this::renderFrame);
         
         // Observer pattern - écouter les changements du modèle
-        controller.getDrawing().addObserver(this);
+        controller.getDrawing().addDrawingListener(this);
         
         setupEventHandlers();
-        getChildren().add(canvas);
+        getChildren().addAll(canvas, overlay);
         
         // Style initial
         gc.setFill(Color.WHITE);
@@ -45,36 +79,62 @@ public class DrawingCanvas extends Pane implements Observer {
         canvas.setOnMouseDragged(this::handleMouseDragged);
         canvas.setOnMouseReleased(this::handleMouseReleased);
         canvas.setOnMouseClicked(this::handleMouseClicked);
+        canvas.setOnScroll(this::handleScroll);
     }
     
     private void handleMousePressed(MouseEvent event) {
+        // Bouton droit ou du milieu: déplacer la vue
+        if (event.getButton() == MouseButton.SECONDARY || event.getButton() == MouseButton.MIDDLE) {
+            isPanning = true;
+            lastPanX = event.getX();
+            lastPanY = event.getY();
+            return;
+        }
+        
         startX = event.getX();
         startY = event.getY();
         isDrawing = true;
         
         if (controller.getCurrentTool().equals("SELECT")) {
-            Shape selectedShape = controller.getDrawing().getShapeAt(startX, startY);
+            Shape selectedShape = controller.getDrawing().getShapeAt(viewport.toWorldX(startX), viewport.toWorldY(startY));
             if (selectedShape != null) {
                 controller.selectShape(selectedShape);
             }
+            overlay.showSelection(selectedShape);
         }
     }
     
     private void handleMouseDragged(MouseEvent event) {
+        if (isPanning) {
+            viewport.pan(event.getX() - lastPanX, event.getY() - lastPanY);
+            lastPanX = event.getX();
+            lastPanY = event.getY();
+            viewChanged();
+            return;
+        }
         if (isDrawing && !controller.getCurrentTool().equals("SELECT")) {
-            // Prévisualisation pendant le dessin
-            redrawCanvas();
-            drawPreview(event.getX(), event.getY());
+            // Prévisualisation sur le calque superposé, affichée à la prochaine image
+            previewX = event.getX();
+            previewY = event.getY();
+            previewPending = true;
+            renderScheduler.requestRender();
         }
     }
     
     private void handleMouseReleased(MouseEvent event) {
+        if (isPanning) {
+            isPanning = false;
+            return;
+        }
         if (isDrawing && !controller.getCurrentTool().equals("SELECT")) {
             double endX = event.getX();
             double endY = event.getY();
             
             // Créer la forme finale
-            controller.createShape(startX, startY, endX, endY);
+            previewPending = false;
+            overlay.clearPreview();
+            controller.createShape(viewport.toWorldX(startX), viewport.toWorldY(startY),
+                    viewport.toWorldX(endX), viewport.toWorldY(endY));
         }
         isDrawing = false;
     }
@@ -82,55 +142,96 @@ public class DrawingCanvas extends Pane implements Observer {
     private void handleMouseClicked(MouseEvent event) {
         if (event.getClickCount() == 2) {
             // Double-clic pour éditer
-            Shape shape = controller.getDrawing().getShapeAt(event.getX(), event.getY());
+            Shape shape = controller.getDrawing().getShapeAt(viewport.toWorldX(event.getX()), viewport.toWorldY(event.getY()));
             if (shape != null) {
                 controller.editShape(shape);
             }
         }
     }
     
-    private void drawPreview(double currentX, double currentY) {
-        gc.setStroke(Color.GRAY);
-        gc.setLineWidth(1);
+    private void handleScroll(ScrollEvent event) {
+        double factor = Math.pow(ZOOM_PER_SCROLL_UNIT, event.getDeltaY());
+        viewport.zoomAt(event.getX(), event.getY(), factor);
+        viewChanged();
+        event.consume();
+    }
+    
+    /**
+     * La vue a changé: tout le canvas doit être redessiné à la prochaine image
+     */
+    private void viewChanged() {
+        repaintManager.markAllDirty();
+        overlay.refreshSelection();
+        renderScheduler.requestRender();
+    }
+    
+    /**
+     * Rendu d'une image: appliquer les modifications accumulées, la prévisualisation
+     * la plus récente puis les régions sales dans la limite du budget
+     */
+    private boolean renderFrame(long deadlineNanos) {
+        pendingChanges.flush();
         
-        String tool = controller.getCurrentTool();
-        switch (tool) {
-            case "RECTANGLE":
-                double width = Math.abs(currentX - startX);
-                double height = Math.abs(currentY - startY);
-                double rectX = Math.min(startX, currentX);
-                double rectY = Math.min(startY, currentY);
-                gc.strokeRect(rectX, rectY, width, height);
-                break;
-            case "CIRCLE":
-                double radius = Math.sqrt(Math.pow(currentX - startX, 2) + Math.pow(currentY - startY, 2));
-                gc.strokeOval(startX - radius, startY - radius, radius * 2, radius * 2);
-                break;
-            case "LINE":
-                gc.strokeLine(startX, startY, currentX, currentY);
-                break;
+        if (previewPending) {
+            previewPending = false;
+            overlay.showPreview(controller.getCurrentTool(), startX, startY, previewX, previewY);
         }
         
-        // Restaurer les paramètres de dessin
-        gc.setStroke(controller.getCurrentColor());
-        gc.setLineWidth(controller.getCurrentStrokeWidth());
+        // Ne redessiner que les régions modifiées
+        if (repaintManager.isDirty()) {
+            repaintManager.repaint(gc, controller.getDrawing(), deadlineNanos);
+        }
+        return repaintManager.isDirty();
     }
     
-    private void redrawCanvas() {
-        // Effacer le canvas
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
-        
-        // Redessiner toutes les formes
-        for (Shape shape : controller.getDrawing().getShapes()) {
-            shape.draw(gc);
+    @Override
+    public void drawingChanged(DrawingEvent event) {
+        // Observer pattern - le rendu est différé à la prochaine pulsation
+        if (!event.affectsShapes()) return;
+        pendingChanges.drawingChanged(event);
+        renderScheduler.requestRender();
+    }
+    
+    private void applyChanges(DrawingEvent event) {
+        // Marquer uniquement les zones touchées
+        if (event.isCleared() || event.getChanges().size() > BULK_REPAINT_THRESHOLD) {
+            // Un gros lot touche presque tout le dessin: tout re-rendre est moins cher
+            repaintManager.invalidateAll();
+        } else {
+            for (DrawingEvent.Change change : event.getChanges()) {
+                repaintManager.markDirty(change.getOldBounds());
+                repaintManager.markDirty(change.getNewBounds());
+            }
         }
+        updateSelection(event);
     }
     
-    @Override
-    public void update(Observable o, Object arg) {
-        // Observer pattern - redessiner quand le modèle change
-        redrawCanvas();
+    private void updateSelection(DrawingEvent event) {
+        Shape selected = controller.getSelectedShape();
+        if (event.isCleared()) {
+            overlay.clearSelection();
+            return;
+        }
+        for (DrawingEvent.Change change : event.getChanges()) {
+            if (!change.getShape().equals(selected)) continue;
+            if (change.getKind() == DrawingEvent.Change.Kind.REMOVED) {
+                overlay.clearSelection();
+            } else {
+                overlay.showSelection(selected);
+            }
+        }
+    }
+    
+    public Viewport getViewport() {
+        return viewport;
+    }
+    
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+    
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
     }
     
     public Canvas getCanvas() {
@@ -0,0 +1,47 @@
+package view;
+
+/**
+ * Règles de niveau de détail selon la taille des formes à l'écran
+ * Une forme plus petite qu'un pixel est réduite à un point, un petit cercle est
+ * tracé comme un polygone. La passe grossière (rendu progressif) relève les seuils
+ * et ignore les formes minuscules, une passe complète l'affine ensuite
+ */
+public final class LevelOfDetail {
+    // Étendue écran (en pixels) sous laquelle une forme devient un point
+    public static final double PIXEL_THRESHOLD = 1.0;
+    // Diamètre écran sous lequel un cercle est simplifié
+    public static final double SIMPLIFY_THRESHOLD = 8.0;
+    // Nombre de côtés d'un cercle simplifié
+    public static final int SIMPLIFIED_CIRCLE_SIDES = 8;
+    // Passe grossière: seuils multipliés par ce facteur
+    private static final double COARSE_FACTOR = 4.0;
+
+    public enum Detail {
+        SKIP,
+        PIXEL,
+        SIMPLIFIED,
+        FULL
+    }
+
+    private LevelOfDetail() {
+    }
+
+    /**
+     * @param screenExtent plus grande dimension de la forme à l'écran, en pixels
+     * @param circle vrai si la forme est un cercle (seule forme simplifiable)
+     * @param coarse vrai pour la passe grossière du rendu progressif
+     */
+    public static Detail classify(double screenExtent, boolean circle, boolean coarse) {
+        double factor = coarse ? COARSE_FACTOR : 1.0;
+        if (coarse && screenExtent < PIXEL_THRESHOLD / COARSE_FACTOR) {
+            return Detail.SKIP;
+        }
+        if (screenExtent < PIXEL_THRESHOLD * factor) {
+            return Detail.PIXEL;
+        }
+        if (circle && screenExtent < SIMPLIFY_THRESHOLD * factor) {
+            return Detail.SIMPLIFIED;
+        }
+        return Detail.FULL;
+    }
+}
@@ -0,0 +1,135 @@
+package view;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import model.Shape;
+
+/**
+ * Calque transparent superposé au canvas principal
+ * Contient les éléments éphémères (prévisualisation, poignées de sélection)
+ * pour ne jamais retoucher le rendu des formes validées
+ */
+public class OverlayLayer extends Canvas {
+    private static final double HANDLE_SIZE = 6;
+    // Marge autour du dernier tracé pour couvrir l'anticrénelage
+    private static final double CLEAR_MARGIN = 2;
+
+    private final GraphicsContext gc;
+    private final Viewport viewport;
+    private Shape selectedShape;
+    // Zones occupées par les derniers tracés (coordonnées écran): {minX, minY, maxX, maxY}
+    private double[] previewBounds;
+    private double[] selectionBounds;
+
+    public OverlayLayer(double width, double height, Viewport viewport) {
+        super(width, height);
+        this.gc = getGraphicsContext2D();
+        this.viewport = viewport;
+        // Les événements souris passent au canvas principal
+        setMouseTransparent(true);
+    }
+
+    /**
+     * Dessine la prévisualisation de l'outil courant en effaçant uniquement la précédente
+     * Les coordonnées sont en pixels écran
+     */
+    public void showPreview(String tool, double startX, double startY, double currentX, double currentY) {
+        clearPreview();
+
+        gc.setStroke(Color.GRAY);
+        gc.setLineWidth(1);
+
+        switch (tool) {
+            case "RECTANGLE":
+                double width = Math.abs(currentX - startX);
+                double height = Math.abs(currentY - startY);
+                double rectX = Math.min(startX, currentX);
+                double rectY = Math.min(startY, currentY);
+                gc.strokeRect(rectX, rectY, width, height);
+                previewBounds = new double[]{rectX, rectY, rectX + width, rectY + height};
+                break;
+            case "CIRCLE":
+                double radius = Math.sqrt(Math.pow(currentX - startX, 2) + Math.pow(currentY - startY, 2));
+                gc.strokeOval(startX - radius, startY - radius, radius * 2, radius * 2);
+                previewBounds = new double[]{startX - radius, startY - radius, startX + radius, startY + radius};
+                break;
+            case "LINE":
+                gc.strokeLine(startX, startY, currentX, currentY);
+                previewBounds = new double[]{Math.min(startX, currentX), Math.min(startY, currentY),
+                        Math.max(startX, currentX), Math.max(startY, currentY)};
+                break;
+        }
+    }
+
+    public void clearPreview() {
+        clear(previewBounds);
+        previewBounds = null;
+        // Le tracé effacé a pu entamer les poignées de sélection
+        redrawSelection();
+    }
+
+    /**
+     * Affiche les poignées de sélection autour de la forme
+     */
+    public void showSelection(Shape shape) {
+        clearSelection();
+        selectedShape = shape;
+        if (shape == null) return;
+
+        Rectangle2D bounds = viewport.toScreen(shape.getBounds());
+        selectionBounds = new double[]{bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY()};
+        drawSelection(selectionBounds);
+    }
+
+    /**
+     * Replace les poignées après un changement de vue
+     */
+    public void refreshSelection() {
+        if (selectedShape != null) {
+            showSelection(selectedShape);
+        }
+    }
+
+    public void clearSelection() {
+        selectedShape = null;
+        if (selectionBounds != null) {
+            // Les poignées débordent du rectangle de sélection
+            clear(new double[]{selectionBounds[0] - HANDLE_SIZE, selectionBounds[1] - HANDLE_SIZE,
+                    selectionBounds[2] + HANDLE_SIZE, selectionBounds[3] + HANDLE_SIZE});
+        }
+        selectionBounds = null;
+    }
+
+    private void redrawSelection() {
+        if (selectionBounds != null) {
+            drawSelection(selectionBounds);
+        }
+    }
+
+    private void drawSelection(double[] b) {
+        gc.setStroke(Color.DODGERBLUE);
+        gc.setLineWidth(1);
+        gc.setLineDashes(4);
+        gc.strokeRect(b[0], b[1], b[2] - b[0], b[3] - b[1]);
+        gc.setLineDashes(null);
+
+        gc.setFill(Color.WHITE);
+        double h = HANDLE_SIZE / 2;
+        double[] xs = {b[0], b[2]};
+        double[] ys = {b[1], b[3]};
+        for (double hx : xs) {
+            for (double hy : ys) {
+                gc.fillRect(hx - h, hy - h, HANDLE_SIZE, HANDLE_SIZE);
+                gc.strokeRect(hx - h, hy - h, HANDLE_SIZE, HANDLE_SIZE);
+            }
+        }
+    }
+
+    private void clear(double[] bounds) {
+        if (bounds == null) return;
+        gc.clearRect(bounds[0] - CLEAR_MARGIN, bounds[1] - CLEAR_MARGIN,
+                bounds[2] - bounds[0] + 2 * CLEAR_MARGIN, bounds[3] - bounds[1] + 2 * CLEAR_MARGIN);
+    }
+}
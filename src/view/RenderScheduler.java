@@ -0,0 +1,80 @@
+package view;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Planificateur de rendu synchronisé sur les pulsations JavaFX
+ * Les demandes de rendu ne font que marquer le canvas comme sale:
+ * le rendu effectif a lieu au plus une fois par image
+ */
+public class RenderScheduler extends AnimationTimer {
+    // Budget par défaut: la moitié d'une image à 60 Hz
+    private static final double DEFAULT_FRAME_BUDGET_MILLIS = 8.0;
+
+    /**
+     * Rendu d'une image; retourne vrai s'il reste du travail pour l'image suivante
+     */
+    @FunctionalInterface
+    public interface FrameRenderer {
+        boolean renderFrame(long deadlineNanos);
+    }
+
+    private final FrameRenderer renderer;
+    private long frameBudgetNanos;
+    private boolean dirty;
+    private boolean running;
+
+    // Statistiques
+    private long framesRendered;
+    private long requestsCoalesced;
+
+    public RenderScheduler(FrameRenderer renderer) {
+        this.renderer = renderer;
+        setFrameBudgetMillis(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Demande un rendu à la prochaine pulsation; les demandes multiples sont fusionnées
+     */
+    public void requestRender() {
+        if (dirty) {
+            requestsCoalesced++;
+        }
+        dirty = true;
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    @Override
+    public void handle(long now) {
+        if (!dirty) {
+            // Rien à faire: arrêter le timer jusqu'à la prochaine demande
+            running = false;
+            stop();
+            return;
+        }
+        dirty = false;
+        long deadline = System.nanoTime() + frameBudgetNanos;
+        if (renderer.renderFrame(deadline)) {
+            // Budget dépassé: continuer à l'image suivante
+            dirty = true;
+        }
+        framesRendered++;
+    }
+
+    public void setFrameBudgetMillis(double millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Le budget par image doit être positif: " + millis);
+        }
+        this.frameBudgetNanos = (long) (millis * 1_000_000);
+    }
+
+    public double getFrameBudgetMillis() {
+        return frameBudgetNanos / 1_000_000.0;
+    }
+
+    public long getFramesRendered() { return framesRendered; }
+    public long getRequestsCoalesced() { return requestsCoalesced; }
+}
@@ -0,0 +1,171 @@
+package view;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import model.Drawing;
+import model.Shape;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moteur de redessin incrémental par régions sales
+ * Accumule les rectangles englobants des formes modifiées, invalide les tuiles
+ * correspondantes du cache et ne recopie que les tuiles qui intersectent ces régions
+ */
+public class RepaintManager {
+    // Au-delà de ce nombre de régions, on les fusionne en une seule
+    private static final int MAX_DIRTY_REGIONS = 8;
+
+    private final Viewport viewport;
+    private final TileCache tileCache;
+    // Régions sales en coordonnées écran
+    private final List<Rectangle2D> dirtyRegions = new ArrayList<>();
+    private boolean fullRepaint = true;
+
+    public RepaintManager(Viewport viewport, TileCache tileCache) {
+        this.viewport = viewport;
+        this.tileCache = tileCache;
+    }
+
+    public void markDirty(Shape shape) {
+        if (shape != null) {
+            markDirty(shape.getBounds());
+        }
+    }
+
+    /**
+     * Marque comme modifiée une région du monde: les tuiles qui la couvrent sont invalidées
+     */
+    public void markDirty(Rectangle2D worldRegion) {
+        if (worldRegion == null) return;
+        tileCache.invalidate(worldRegion);
+        markScreenDirty(viewport.toScreen(worldRegion));
+    }
+
+    /**
+     * Marque une région du monde à recopier depuis le cache sans invalider ses tuiles
+     * (tuile livrée par le rendu parallèle)
+     */
+    public void markExposed(Rectangle2D worldRegion) {
+        if (worldRegion == null) return;
+        markScreenDirty(viewport.toScreen(worldRegion));
+    }
+
+    private void markScreenDirty(Rectangle2D region) {
+        if (fullRepaint) return;
+
+        // Arrondir au pixel pour éviter les coutures entre régions
+        double minX = Math.floor(region.getMinX());
+        double minY = Math.floor(region.getMinY());
+        double maxX = Math.ceil(region.getMaxX());
+        double maxY = Math.ceil(region.getMaxY());
+        Rectangle2D merged = new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+
+        // Fusionner avec les régions qui se chevauchent
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < dirtyRegions.size(); i++) {
+                Rectangle2D other = dirtyRegions.get(i);
+                if (overlaps(merged, other)) {
+                    merged = union(merged, other);
+                    dirtyRegions.remove(i);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        dirtyRegions.add(merged);
+
+        if (dirtyRegions.size() > MAX_DIRTY_REGIONS) {
+            Rectangle2D all = dirtyRegions.get(0);
+            for (Rectangle2D r : dirtyRegions) {
+                all = union(all, r);
+            }
+            dirtyRegions.clear();
+            dirtyRegions.add(all);
+        }
+    }
+
+    /**
+     * Tout l'écran doit être recopié (changement de vue): les tuiles restent valides
+     */
+    public void markAllDirty() {
+        fullRepaint = true;
+        dirtyRegions.clear();
+    }
+
+    /**
+     * Tout le dessin a changé: vider le cache de tuiles
+     */
+    public void invalidateAll() {
+        tileCache.clear();
+        markAllDirty();
+    }
+
+    public boolean isDirty() {
+        return fullRepaint || !dirtyRegions.isEmpty();
+    }
+
+    /**
+     * Redessine uniquement les régions sales puis les réinitialise
+     */
+    public void repaint(GraphicsContext gc, Drawing drawing) {
+        repaint(gc, drawing, Long.MAX_VALUE);
+    }
+
+    /**
+     * Redessine les régions sales tant que l'échéance (System.nanoTime) n'est pas atteinte
+     * Les régions non traitées restent sales pour l'image suivante
+     */
+    public void repaint(GraphicsContext gc, Drawing drawing, long deadlineNanos) {
+        Rectangle2D screen = new Rectangle2D(0, 0, gc.getCanvas().getWidth(), gc.getCanvas().getHeight());
+
+        if (fullRepaint) {
+            fullRepaint = false;
+            dirtyRegions.clear();
+            dirtyRegions.add(screen);
+        }
+
+        while (!dirtyRegions.isEmpty()) {
+            Rectangle2D region = dirtyRegions.remove(dirtyRegions.size() - 1);
+            // Les régions hors de la vue ne coûtent rien
+            if (overlaps(region, screen) && !repaintRegion(gc, drawing, region, deadlineNanos)) {
+                // Tuiles manquantes non rendues à temps: reprendre à l'image suivante
+                dirtyRegions.add(region);
+                break;
+            }
+            if (System.nanoTime() > deadlineNanos) break;
+        }
+    }
+
+    private boolean repaintRegion(GraphicsContext gc, Drawing drawing, Rectangle2D region, long deadlineNanos) {
+        gc.save();
+        gc.beginPath();
+        gc.rect(region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight());
+        gc.closePath();
+        gc.clip();
+
+        gc.setFill(Color.WHITE);
+        gc.fillRect(region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight());
+
+        // Recopier les tuiles en cache au lieu de retracer les formes
+        boolean complete = tileCache.drawTiles(gc, drawing, viewport, region, deadlineNanos);
+        gc.restore();
+        return complete;
+    }
+
+    private static boolean overlaps(Rectangle2D a, Rectangle2D b) {
+        return a.getMinX() <= b.getMaxX() && a.getMaxX() >= b.getMinX()
+                && a.getMinY() <= b.getMaxY() && a.getMaxY() >= b.getMinY();
+    }
+
+    private static Rectangle2D union(Rectangle2D a, Rectangle2D b) {
+        double minX = Math.min(a.getMinX(), b.getMinX());
+        double minY = Math.min(a.getMinY(), b.getMinY());
+        double maxX = Math.max(a.getMaxX(), b.getMaxX());
+        double maxY = Math.max(a.getMaxY(), b.getMaxY());
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+}
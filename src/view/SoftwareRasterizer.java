@@ -0,0 +1,289 @@
+package view;
+
+import model.Circle;
+import model.Line;
+import model.Rectangle;
+import model.Shape;
+import model.StyleTable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rastérisation logicielle des formes dans un tampon de pixels ARGB
+ * Utilisable hors du thread JavaFX: les formes sont d'abord copiées dans une
+ * liste de tracés immuable sur le thread FX, puis dessinées par un thread de travail.
+ * L'anticrénelage est obtenu par la distance de chaque pixel au contour.
+ */
+public final class SoftwareRasterizer {
+    private static final byte RECTANGLE = 0;
+    private static final byte CIRCLE = 1;
+    private static final byte LINE = 2;
+
+    private SoftwareRasterizer() {
+    }
+
+    /**
+     * Copie immuable de la géométrie et du style des formes à dessiner
+     */
+    public static final class DrawList {
+        private final byte[] types;
+        // 4 coordonnées par forme: rectangle (x, y, largeur, hauteur), cercle (cx, cy, rayon, -), ligne (x1, y1, x2, y2)
+        private final double[] coords;
+        private final int[] colors;
+        private final double[] widths;
+
+        private DrawList(int count) {
+            types = new byte[count];
+            coords = new double[count * 4];
+            colors = new int[count];
+            widths = new double[count];
+        }
+
+        public int size() {
+            return types.length;
+        }
+    }
+
+    /**
+     * Prépare la liste de tracés sur le thread FX
+     * @return null si une forme n'est pas prise en charge par la rastérisation logicielle
+     */
+    public static DrawList capture(List<Shape> shapes) {
+        StyleTable styles = StyleTable.getInstance();
+        DrawList list = new DrawList(shapes.size());
+        for (int i = 0; i < shapes.size(); i++) {
+            Shape shape = shapes.get(i);
+            int c = i * 4;
+            if (shape instanceof Rectangle) {
+                Rectangle r = (Rectangle) shape;
+                list.types[i] = RECTANGLE;
+                list.coords[c] = r.getX();
+                list.coords[c + 1] = r.getY();
+                list.coords[c + 2] = r.getWidth();
+                list.coords[c + 3] = r.getHeight();
+            } else if (shape instanceof Circle) {
+                Circle ci = (Circle) shape;
+                list.types[i] = CIRCLE;
+                list.coords[c] = ci.getX();
+                list.coords[c + 1] = ci.getY();
+                list.coords[c + 2] = ci.getRadius();
+            } else if (shape instanceof Line) {
+                Line l = (Line) shape;
+                list.types[i] = LINE;
+                list.coords[c] = l.getX();
+                list.coords[c + 1] = l.getY();
+                list.coords[c + 2] = l.getEndX();
+                list.coords[c + 3] = l.getEndY();
+            } else {
+                return null;
+            }
+            list.colors[i] = styles.getArgb(shape.getStyleId());
+            list.widths[i] = styles.getStrokeWidth(shape.getStyleId());
+        }
+        return list;
+    }
+
+    /**
+     * Dessine la liste sur fond blanc dans un tampon carré size x size
+     * pixel = monde * scale - offset
+     * @param coarse passe grossière du rendu progressif (seuils de détail relevés)
+     */
+    public static void rasterize(DrawList list, double scale, double offsetX, double offsetY,
+                                 int[] pixels, int size, boolean coarse) {
+        Arrays.fill(pixels, 0xFFFFFFFF);
+        for (int i = 0; i < list.size(); i++) {
+            int c = i * 4;
+            byte type = list.types[i];
+            double x = list.coords[c] * scale - offsetX;
+            double y = list.coords[c + 1] * scale - offsetY;
+            double a = list.coords[c + 2] * scale;
+            double b = list.coords[c + 3] * scale;
+            // Un trait fait au moins un pixel de large, comme dans Prism
+            double halfWidth = Math.max(list.widths[i] * scale, 1.0) / 2;
+            int color = list.colors[i];
+
+            // Les cercles rastérisés par distance coûtent déjà peu: pas de forme simplifiée ici
+            switch (LevelOfDetail.classify(screenExtent(type, x, y, a, b, offsetX, offsetY),
+                    type == CIRCLE, coarse)) {
+                case SKIP:
+                    continue;
+                case PIXEL:
+                    plot(pixels, size, color, type, x, y, a, b, offsetX, offsetY);
+                    continue;
+                default:
+                    break;
+            }
+            switch (type) {
+                case RECTANGLE:
+                    strokeRectangle(pixels, size, color, halfWidth, x, y, a, b);
+                    break;
+                case CIRCLE:
+                    strokeCircle(pixels, size, color, halfWidth, x, y, a);
+                    break;
+                case LINE:
+                    strokeLine(pixels, size, color, halfWidth, x, y, a - offsetX, b - offsetY);
+                    break;
+            }
+        }
+    }
+
+    private static double screenExtent(byte type, double x, double y, double a, double b,
+                                       double offsetX, double offsetY) {
+        switch (type) {
+            case RECTANGLE:
+                return Math.max(Math.abs(a), Math.abs(b));
+            case CIRCLE:
+                return 2 * a;
+            default:
+                return Math.max(Math.abs(a - offsetX - x), Math.abs(b - offsetY - y));
+        }
+    }
+
+    /**
+     * Forme sous le pixel: un seul point en son centre
+     */
+    private static void plot(int[] pixels, int size, int color, byte type, double x, double y,
+                             double a, double b, double offsetX, double offsetY) {
+        double cx, cy;
+        switch (type) {
+            case RECTANGLE:
+                cx = x + a / 2;
+                cy = y + b / 2;
+                break;
+            case CIRCLE:
+                cx = x;
+                cy = y;
+                break;
+            default:
+                cx = (x + a - offsetX) / 2;
+                cy = (y + b - offsetY) / 2;
+                break;
+        }
+        int px = (int) Math.floor(cx), py = (int) Math.floor(cy);
+        if (px >= 0 && px < size && py >= 0 && py < size) {
+            blend(pixels, py * size + px, color, 1.0);
+        }
+    }
+
+    private static void strokeRectangle(int[] pixels, int size, int color, double hw,
+                                        double x, double y, double w, double h) {
+        double cx = x + w / 2, cy = y + h / 2;
+        double hx = w / 2, hy = h / 2;
+        int minX = clampLow(x - hw - 1), maxX = clampHigh(x + w + hw + 1, size);
+        int minY = clampLow(y - hw - 1), maxY = clampHigh(y + h + hw + 1, size);
+        // Intérieur sans trait: colonnes à sauter pour les lignes centrales
+        int skipFrom = (int) Math.ceil(x + hw + 1), skipTo = (int) Math.floor(x + w - hw - 1);
+        double innerTop = y + hw + 1, innerBottom = y + h - hw - 1;
+
+        for (int py = minY; py < maxY; py++) {
+            double sy = py + 0.5;
+            boolean inner = sy > innerTop && sy < innerBottom;
+            for (int px = minX; px < maxX; px++) {
+                if (inner && px >= skipFrom && px < skipTo) {
+                    px = skipTo - 1;
+                    continue;
+                }
+                double qx = Math.abs(px + 0.5 - cx) - hx;
+                double qy = Math.abs(sy - cy) - hy;
+                double ox = Math.max(qx, 0), oy = Math.max(qy, 0);
+                double outside = Math.sqrt(ox * ox + oy * oy);
+                double distance = Math.abs(outside + Math.min(Math.max(qx, qy), 0));
+                blend(pixels, py * size + px, color, hw + 0.5 - distance);
+            }
+        }
+    }
+
+    private static void strokeCircle(int[] pixels, int size, int color, double hw,
+                                     double cx, double cy, double r) {
+        double extent = r + hw + 1;
+        int minX = clampLow(cx - extent), maxX = clampHigh(cx + extent, size);
+        int minY = clampLow(cy - extent), maxY = clampHigh(cy + extent, size);
+        double innerRadius = r - hw - 1;
+
+        for (int py = minY; py < maxY; py++) {
+            double dy = py + 0.5 - cy;
+            // Sauter la corde intérieure du disque qui ne reçoit pas de trait
+            int skipFrom = Integer.MAX_VALUE, skipTo = Integer.MIN_VALUE;
+            if (innerRadius > 0 && Math.abs(dy) < innerRadius) {
+                double half = Math.sqrt(innerRadius * innerRadius - dy * dy);
+                skipFrom = (int) Math.ceil(cx - half);
+                skipTo = (int) Math.floor(cx + half);
+            }
+            for (int px = minX; px < maxX; px++) {
+                if (px >= skipFrom && px < skipTo) {
+                    px = skipTo - 1;
+                    continue;
+                }
+                double ex = px + 0.5 - cx;
+                double distance = Math.abs(Math.sqrt(ex * ex + dy * dy) - r);
+                blend(pixels, py * size + px, color, hw + 0.5 - distance);
+            }
+        }
+    }
+
+    /**
+     * Trait à extrémités carrées (StrokeLineCap.SQUARE, comme Line.draw et l'aperçu):
+     * rectangle orienté qui prolonge le segment de hw de chaque côté
+     */
+    private static void strokeLine(int[] pixels, int size, int color, double hw,
+                                   double x1, double y1, double x2, double y2) {
+        // Les coins des extrémités débordent jusqu'à hw * racine de 2
+        double reach = hw * Math.sqrt(2) + 1;
+        int minX = clampLow(Math.min(x1, x2) - reach), maxX = clampHigh(Math.max(x1, x2) + reach, size);
+        int minY = clampLow(Math.min(y1, y2) - reach), maxY = clampHigh(Math.max(y1, y2) + reach, size);
+        double dx = x2 - x1, dy = y2 - y1;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        // Segment de longueur nulle: carré aligné sur les axes
+        double ux = length == 0 ? 1 : dx / length, uy = length == 0 ? 0 : dy / length;
+        double mx = (x1 + x2) / 2, my = (y1 + y2) / 2;
+        double halfLength = length / 2 + hw;
+
+        for (int py = minY; py < maxY; py++) {
+            double sy = py + 0.5;
+            int from = minX, to = maxX;
+            if (Math.abs(dy) > 1e-9) {
+                // Ne parcourir que la portion de ligne proche du segment
+                double center = x1 + (sy - y1) * dx / dy;
+                double half = (hw + 1) * length / Math.abs(dy) + 1;
+                from = Math.max(minX, (int) Math.floor(center - half));
+                to = Math.min(maxX, (int) Math.ceil(center + half));
+            }
+            for (int px = from; px < to; px++) {
+                double ex = px + 0.5 - mx, ey = sy - my;
+                // Distance signée au rectangle, dans le repère du segment
+                double qx = Math.abs(ex * ux + ey * uy) - halfLength;
+                double qy = Math.abs(ey * ux - ex * uy) - hw;
+                double ox = Math.max(qx, 0), oy = Math.max(qy, 0);
+                double distance = Math.sqrt(ox * ox + oy * oy) + Math.min(Math.max(qx, qy), 0);
+                blend(pixels, py * size + px, color, 0.5 - distance);
+            }
+        }
+    }
+
+    /**
+     * Mélange la couleur sur le pixel avec une couverture dans [0, 1]
+     */
+    private static void blend(int[] pixels, int index, int color, double coverage) {
+        if (coverage <= 0) return;
+        double alpha = ((color >>> 24) / 255.0) * Math.min(coverage, 1.0);
+        if (alpha <= 0) return;
+
+        int dst = pixels[index];
+        int r = mix((color >> 16) & 0xFF, (dst >> 16) & 0xFF, alpha);
+        int g = mix((color >> 8) & 0xFF, (dst >> 8) & 0xFF, alpha);
+        int b = mix(color & 0xFF, dst & 0xFF, alpha);
+        pixels[index] = 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int mix(int src, int dst, double alpha) {
+        return (int) Math.round(src * alpha + dst * (1 - alpha));
+    }
+
+    private static int clampLow(double v) {
+        return Math.max(0, (int) Math.floor(v));
+    }
+
+    private static int clampHigh(double v, int size) {
+        return Math.min(size, (int) Math.ceil(v));
+    }
+}
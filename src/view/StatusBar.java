@@ -1,11 +1,15 @@
 package view;
 
+import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import controller.DrawingController;
+import controller.DrawingLoadTask;
 import utils.Logger;
 
 /**
@@ -15,6 +19,9 @@ public class StatusBar extends HBox {
     private Label statusLabel;
     private Label toolLabel;
     private Label loggingLabel;
+    private ProgressBar loadProgress;
+    private Button cancelLoadButton;
+    private DrawingLoadTask currentLoad;
     private DrawingController controller;
     private Logger logger;
     
@@ -28,6 +35,8 @@ public class StatusBar extends HBox {
         
         createStatusElements();
         updateStatus();
+        controller.setOnLoadStarted(this::showLoad);
+        controller.setOnSaveStatus(this::showSaveStatus);
     }
     
     private void createStatusElements() {
@@ -35,11 +44,18 @@ public class StatusBar extends HBox {
         toolLabel = new Label("Outil: Rectangle");
         loggingLabel = new Label("Log: " + logger.getCurrentStrategyName());
         
+        // Progression du chargement, visible seulement pendant un chargement
+        loadProgress = new ProgressBar(0);
+        loadProgress.setPrefWidth(150);
+        cancelLoadButton = new Button("Annuler");
+        cancelLoadButton.setOnAction(e -> controller.cancelLoading());
+        setLoadVisible(false);
+        
         // Espaceur pour pousser les éléments vers la droite
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        getChildren().addAll(statusLabel, spacer, toolLabel, new Label("|"), loggingLabel);
+        getChildren().addAll(statusLabel, loadProgress, cancelLoadButton, spacer, toolLabel, new Label("|"), loggingLabel);
     }
     
     public void updateStatus() {
@@ -48,10 +64,59 @@ public class StatusBar extends HBox {
         loggingLabel.setText("Log: " + logger.getCurrentStrategyName());
     }
     
+    /**
+     * Suit un chargement de dessin jusqu'à sa fin (succès, échec ou annulation)
+     */
+    private void showLoad(DrawingLoadTask task) {
+        currentLoad = task;
+        loadProgress.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        setLoadVisible(true);
+
+        task.stateProperty().addListener((obs, oldState, state) -> {
+            // Ignorer un chargement remplacé entre-temps par un autre
+            if (task != currentLoad || (state != Worker.State.SUCCEEDED
+                    && state != Worker.State.FAILED && state != Worker.State.CANCELLED)) {
+                return;
+            }
+            currentLoad = null;
+            loadProgress.progressProperty().unbind();
+            statusLabel.textProperty().unbind();
+            setLoadVisible(false);
+            switch (state) {
+                case SUCCEEDED:
+                    setStatus("Dessin '" + task.getDrawingName() + "' chargé");
+                    break;
+                case CANCELLED:
+                    setStatus("Chargement annulé");
+                    break;
+                default:
+                    setStatus("Échec du chargement");
+                    break;
+            }
+        });
+    }
+
+    private void setLoadVisible(boolean visible) {
+        loadProgress.setVisible(visible);
+        loadProgress.setManaged(visible);
+        cancelLoadButton.setVisible(visible);
+        cancelLoadButton.setManaged(visible);
+    }
+    
     public void setStatus(String status) {
         statusLabel.setText(status);
     }
     
+    /**
+     * Message de sauvegarde; ignoré pendant un chargement, qui affiche sa progression
+     */
+    private void showSaveStatus(String status) {
+        if (!statusLabel.textProperty().isBound()) {
+            setStatus(status);
+        }
+    }
+    
     private String getToolDisplayName(String tool) {
         switch (tool) {
             case "SELECT": return "Sélection";
@@ -0,0 +1,434 @@
+package view;
+
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import model.Circle;
+import model.Drawing;
+import model.Shape;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Cache de tuiles pré-rendues pour la scène validée
+ * Chaque tuile couvre TILE_SIZE x TILE_SIZE pixels écran à un niveau de zoom donné.
+ * Les tuiles sont invalidées uniquement par les formes modifiées qui les touchent
+ * et évincées selon l'ordre LRU au-delà du budget mémoire.
+ * En mode parallèle, les tuiles manquantes sont rastérisées sur un pool de threads
+ * puis recopiées sur le thread FX par PixelWriter: l'interface reste réactive
+ * pendant les gros redessins.
+ * Rendu progressif: une tuile chargée (ou rendue hors budget) est d'abord produite
+ * en passe grossière (voir LevelOfDetail) puis affinée aux images suivantes
+ */
+public class TileCache {
+    public static final int TILE_SIZE = 256;
+    private static final long BYTES_PER_TILE = (long) TILE_SIZE * TILE_SIZE * 4;
+    private static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // Au-delà de ce nombre de formes, une tuile rendue en parallèle passe d'abord en grossier
+    private static final int PROGRESSIVE_MIN_SHAPES = 2000;
+
+    /**
+     * Clé de tuile: (niveau de zoom, colonne, ligne)
+     */
+    static final class TileKey {
+        final int level;
+        final int tileX;
+        final int tileY;
+
+        TileKey(int level, int tileX, int tileY) {
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return level == other.level && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(level, tileX, tileY);
+        }
+    }
+
+    /**
+     * Rendu d'une tuile en cours sur un thread de travail
+     */
+    private static final class TileJob {
+        final TileKey key;
+        final double scale;
+        final SoftwareRasterizer.DrawList drawList;
+        // Livrer d'abord une passe grossière
+        final boolean progressive;
+        volatile boolean cancelled;
+
+        TileJob(TileKey key, double scale, SoftwareRasterizer.DrawList drawList, boolean progressive) {
+            this.key = key;
+            this.scale = scale;
+            this.drawList = drawList;
+            this.progressive = progressive;
+        }
+
+        Rectangle2D worldBounds() {
+            double worldSize = TILE_SIZE / scale;
+            return new Rectangle2D(key.tileX * worldSize, key.tileY * worldSize, worldSize, worldSize);
+        }
+    }
+
+    // Ordre d'accès: la première entrée est la moins récemment utilisée
+    private final LinkedHashMap<TileKey, WritableImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<Integer> cachedLevels = new HashSet<>();
+    // Tuiles issues d'une passe grossière, à affiner
+    private final Set<TileKey> coarseTiles = new HashSet<>();
+    // Images évincées réutilisées comme cible du prochain rendu
+    private final List<WritableImage> recycled = new ArrayList<>();
+    private final Canvas tileCanvas = new Canvas(TILE_SIZE, TILE_SIZE);
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    // Sommets d'un cercle simplifié (LevelOfDetail.SIMPLIFIED)
+    private final double[] polygonX = new double[LevelOfDetail.SIMPLIFIED_CIRCLE_SIDES];
+    private final double[] polygonY = new double[LevelOfDetail.SIMPLIFIED_CIRCLE_SIDES];
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    // Rendu parallèle: un thread FX et au moins un thread de travail
+    private final ForkJoinPool rasterPool =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private final Map<TileKey, TileJob> pending = new HashMap<>();
+    // Tampons de pixels rendus au pool une fois recopiés dans une image
+    private final ConcurrentLinkedQueue<int[]> freeBuffers = new ConcurrentLinkedQueue<>();
+    private boolean parallelRendering = true;
+    private int lastRequestedLevel = Integer.MIN_VALUE;
+    // Appelé sur le thread FX avec la région du monde d'une tuile livrée
+    private Consumer<Rectangle2D> onTileReady;
+
+    // Statistiques
+    private long hits;
+    private long misses;
+
+    public TileCache() {
+        snapshotParameters.setFill(Color.WHITE);
+    }
+
+    /**
+     * Affiche les tuiles couvrant une région écran, en rendant celles qui manquent
+     * tant que l'échéance n'est pas atteinte
+     * @return faux si des tuiles manquantes n'ont pas pu être rendues à temps
+     */
+    public boolean drawTiles(GraphicsContext gc, Drawing drawing, Viewport viewport,
+                             Rectangle2D screenRegion, long deadlineNanos) {
+        int level = viewport.getZoomLevel();
+        double originX = viewport.getTranslateX();
+        double originY = viewport.getTranslateY();
+
+        int firstX = (int) Math.floor((screenRegion.getMinX() - originX) / TILE_SIZE);
+        int lastX = (int) Math.floor((screenRegion.getMaxX() - originX) / TILE_SIZE);
+        int firstY = (int) Math.floor((screenRegion.getMinY() - originY) / TILE_SIZE);
+        int lastY = (int) Math.floor((screenRegion.getMaxY() - originY) / TILE_SIZE);
+
+        if (level != lastRequestedLevel) {
+            // Changement de zoom: les tuiles des autres niveaux ne sont plus attendues
+            cancelPendingExcept(level);
+            lastRequestedLevel = level;
+        }
+
+        boolean complete = true;
+        for (int tileY = firstY; tileY <= lastY; tileY++) {
+            for (int tileX = firstX; tileX <= lastX; tileX++) {
+                TileKey key = new TileKey(level, tileX, tileY);
+                WritableImage tile = tiles.get(key);
+                boolean coarse = tile != null && coarseTiles.contains(key);
+                if (tile != null) {
+                    hits++;
+                } else {
+                    misses++;
+                }
+
+                if (tile == null || coarse) {
+                    if (pending.containsKey(key)
+                            || (parallelRendering && submit(drawing, viewport.getScale(), key, tile == null))) {
+                        // Rendu en cours: la zone reste blanche (ou grossière) jusqu'à la livraison
+                        if (tile == null) continue;
+                    } else if (System.nanoTime() <= deadlineNanos) {
+                        tile = renderTile(drawing, viewport.getScale(), key, false);
+                        store(key, tile, false);
+                    } else if (tile == null) {
+                        // Budget dépassé: passe grossière maintenant, affinée à une image suivante
+                        tile = renderTile(drawing, viewport.getScale(), key, true);
+                        store(key, tile, true);
+                        complete = false;
+                    } else {
+                        complete = false;
+                    }
+                }
+                gc.drawImage(tile, originX + tileX * TILE_SIZE, originY + tileY * TILE_SIZE);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Lance le rendu d'une tuile sur le pool
+     * @param allowCoarse vrai si aucune image de la tuile n'est affichée (passe grossière utile)
+     * @return faux si la tuile contient des formes que seul le rendu JavaFX sait dessiner
+     */
+    private boolean submit(Drawing drawing, double scale, TileKey key, boolean allowCoarse) {
+        double worldSize = TILE_SIZE / scale;
+        double worldMinX = key.tileX * worldSize;
+        double worldMinY = key.tileY * worldSize;
+        // L'index spatial n'est lu que sur le thread FX: les formes sont copiées avant le passage au pool
+        SoftwareRasterizer.DrawList drawList = SoftwareRasterizer.capture(
+                drawing.queryRegion(worldMinX, worldMinY, worldMinX + worldSize, worldMinY + worldSize));
+        if (drawList == null) return false;
+
+        TileJob job = new TileJob(key, scale, drawList,
+                allowCoarse && drawList.size() >= PROGRESSIVE_MIN_SHAPES);
+        pending.put(key, job);
+        rasterPool.execute(() -> rasterize(job));
+        return true;
+    }
+
+    /**
+     * Exécuté sur un thread de travail
+     */
+    private void rasterize(TileJob job) {
+        if (job.progressive) {
+            rasterizePass(job, true);
+        }
+        rasterizePass(job, false);
+    }
+
+    private void rasterizePass(TileJob job, boolean coarse) {
+        if (job.cancelled) return;
+        int[] pixels = freeBuffers.poll();
+        if (pixels == null) {
+            pixels = new int[TILE_SIZE * TILE_SIZE];
+        }
+        SoftwareRasterizer.rasterize(job.drawList, job.scale,
+                job.key.tileX * (double) TILE_SIZE, job.key.tileY * (double) TILE_SIZE, pixels, TILE_SIZE, coarse);
+        int[] result = pixels;
+        Platform.runLater(() -> deliver(job, result, coarse));
+    }
+
+    /**
+     * Recopie une passe terminée dans une image, sur le thread FX
+     */
+    private void deliver(TileJob job, int[] pixels, boolean coarse) {
+        // Tuile invalidée ou annulée pendant le rendu: le résultat est périmé
+        if (pending.get(job.key) == job && !job.cancelled) {
+            if (!coarse) {
+                pending.remove(job.key);
+            }
+            WritableImage tile = recycled.isEmpty()
+                    ? new WritableImage(TILE_SIZE, TILE_SIZE) : recycled.remove(recycled.size() - 1);
+            tile.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE,
+                    PixelFormat.getIntArgbInstance(), pixels, 0, TILE_SIZE);
+            store(job.key, tile, coarse);
+            if (onTileReady != null) {
+                onTileReady.accept(job.worldBounds());
+            }
+        }
+        freeBuffers.offer(pixels);
+    }
+
+    private void cancelPendingExcept(int level) {
+        pending.values().removeIf(job -> {
+            boolean stale = job.key.level != level;
+            if (stale) job.cancelled = true;
+            return stale;
+        });
+    }
+
+    private WritableImage renderTile(Drawing drawing, double scale, TileKey key, boolean coarse) {
+        double worldSize = TILE_SIZE / scale;
+        double worldMinX = key.tileX * worldSize;
+        double worldMinY = key.tileY * worldSize;
+
+        GraphicsContext tileGc = tileCanvas.getGraphicsContext2D();
+        tileGc.setTransform(1, 0, 0, 1, 0, 0);
+        tileGc.setFill(Color.WHITE);
+        tileGc.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+        tileGc.setTransform(scale, 0, 0, scale, -key.tileX * (double) TILE_SIZE, -key.tileY * (double) TILE_SIZE);
+        for (Shape shape : drawing.queryRegion(worldMinX, worldMinY, worldMinX + worldSize, worldMinY + worldSize)) {
+            drawShape(tileGc, shape, scale, coarse);
+        }
+
+        WritableImage target = recycled.isEmpty() ? null : recycled.remove(recycled.size() - 1);
+        return tileCanvas.snapshot(snapshotParameters, target);
+    }
+
+    /**
+     * Dessine la forme selon son niveau de détail à l'échelle donnée
+     * draw() reste le cas général: GraphicsContext n'écrit pas un style identique au précédent
+     */
+    private void drawShape(GraphicsContext gc, Shape shape, double scale, boolean coarse) {
+        Rectangle2D b = shape.getBounds();
+        switch (LevelOfDetail.classify(Math.max(b.getWidth(), b.getHeight()) * scale,
+                shape instanceof Circle, coarse)) {
+            case SKIP:
+                break;
+            case PIXEL:
+                // Un pixel écran au centre de la forme
+                double size = 1 / scale;
+                gc.setFill(shape.getColor());
+                gc.fillRect(b.getMinX() + b.getWidth() / 2 - size / 2, b.getMinY() + b.getHeight() / 2 - size / 2,
+                        size, size);
+                break;
+            case SIMPLIFIED:
+                Circle circle = (Circle) shape;
+                for (int i = 0; i < polygonX.length; i++) {
+                    double angle = 2 * Math.PI * i / polygonX.length;
+                    polygonX[i] = circle.getX() + circle.getRadius() * Math.cos(angle);
+                    polygonY[i] = circle.getY() + circle.getRadius() * Math.sin(angle);
+                }
+                gc.setStroke(circle.getColor());
+                gc.setLineWidth(circle.getStrokeWidth());
+                gc.strokePolygon(polygonX, polygonY, polygonX.length);
+                break;
+            default:
+                shape.draw(gc);
+                break;
+        }
+    }
+
+    private void store(TileKey key, WritableImage tile, boolean coarse) {
+        WritableImage previous = tiles.put(key, tile);
+        if (previous != null && previous != tile) {
+            recycle(previous);
+        }
+        if (coarse) {
+            coarseTiles.add(key);
+        } else {
+            coarseTiles.remove(key);
+        }
+        cachedLevels.add(key.level);
+
+        // Évincer les tuiles les moins récemment utilisées
+        Iterator<Map.Entry<TileKey, WritableImage>> it = tiles.entrySet().iterator();
+        while (tiles.size() * BYTES_PER_TILE > memoryBudget && it.hasNext()) {
+            Map.Entry<TileKey, WritableImage> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            recycle(eldest.getValue());
+            coarseTiles.remove(eldest.getKey());
+            it.remove();
+        }
+    }
+
+    /**
+     * Invalide les tuiles (tous niveaux confondus) qui intersectent une région du monde
+     */
+    public void invalidate(Rectangle2D worldRegion) {
+        if (worldRegion == null) return;
+
+        // Les rendus en cours sur la région sont périmés
+        pending.values().removeIf(job -> {
+            boolean stale = job.worldBounds().intersects(worldRegion);
+            if (stale) job.cancelled = true;
+            return stale;
+        });
+        if (tiles.isEmpty()) return;
+
+        for (int level : cachedLevels) {
+            double tileWorldSize = TILE_SIZE / Viewport.scaleForLevel(level);
+            int firstX = (int) Math.floor(worldRegion.getMinX() / tileWorldSize);
+            int lastX = (int) Math.floor(worldRegion.getMaxX() / tileWorldSize);
+            int firstY = (int) Math.floor(worldRegion.getMinY() / tileWorldSize);
+            int lastY = (int) Math.floor(worldRegion.getMaxY() / tileWorldSize);
+
+            long span = (long) (lastX - firstX + 1) * (lastY - firstY + 1);
+            if (span > tiles.size()) {
+                // Région plus grande que le cache: parcourir les tuiles existantes
+                tiles.entrySet().removeIf(e -> {
+                    TileKey k = e.getKey();
+                    boolean hit = k.level == level && k.tileX >= firstX && k.tileX <= lastX
+                            && k.tileY >= firstY && k.tileY <= lastY;
+                    if (hit) {
+                        recycle(e.getValue());
+                        coarseTiles.remove(k);
+                    }
+                    return hit;
+                });
+            } else {
+                for (int tileY = firstY; tileY <= lastY; tileY++) {
+                    for (int tileX = firstX; tileX <= lastX; tileX++) {
+                        TileKey k = new TileKey(level, tileX, tileY);
+                        WritableImage removed = tiles.remove(k);
+                        if (removed != null) {
+                            recycle(removed);
+                            coarseTiles.remove(k);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (TileJob job : pending.values()) {
+            job.cancelled = true;
+        }
+        pending.clear();
+        tiles.clear();
+        coarseTiles.clear();
+        cachedLevels.clear();
+        recycled.clear();
+    }
+
+    private void recycle(WritableImage image) {
+        // Garder quelques images pour éviter de réallouer à chaque rendu
+        if (recycled.size() < 8) {
+            recycled.add(image);
+        }
+    }
+
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = Math.max(BYTES_PER_TILE, bytes);
+    }
+
+    /**
+     * Active ou non la rastérisation des tuiles sur le pool de threads
+     */
+    public void setParallelRendering(boolean parallelRendering) {
+        this.parallelRendering = parallelRendering;
+        if (!parallelRendering) {
+            cancelPendingExcept(Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Arrête le pool de rastérisation (fermeture de l'application); les rendus suivants
+     * se font sur le thread FX
+     */
+    public void dispose() {
+        setParallelRendering(false);
+        rasterPool.shutdownNow();
+    }
+
+    public void setOnTileReady(Consumer<Rectangle2D> onTileReady) {
+        this.onTileReady = onTileReady;
+    }
+
+    public boolean isParallelRendering() { return parallelRendering; }
+    public int getPendingTileCount() { return pending.size(); }
+    public long getMemoryBudget() { return memoryBudget; }
+    public int getTileCount() { return tiles.size(); }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+}
@@ -104,7 +104,7 @@ public class ToolPalette extends VBox {
         Label shapeCountLabel = new Label("Formes: 0");
         
         // Mettre à jour le compteur de formes
-        controller.getDrawing().addObserver((o, arg) -> {
+        controller.getDrawing().addDrawingListener(event -> {
             int count = controller.getDrawing().getShapeCount();
             shapeCountLabel.setText("Formes: " + count);
         });
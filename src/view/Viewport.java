@@ -0,0 +1,101 @@
+package view;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * Fenêtre de visualisation sur le dessin (translation + échelle)
+ * écran = monde * échelle + translation
+ * L'échelle est discrétisée en niveaux (2^(niveau / ZOOM_STEPS_PER_OCTAVE)) et la translation
+ * alignée sur le pixel, pour que les tuiles en cache restent exactes
+ */
+public class Viewport {
+    public static final int ZOOM_STEPS_PER_OCTAVE = 8;
+    // Environ 0.01x à 100x
+    private static final int MIN_ZOOM_LEVEL = -53;
+    private static final int MAX_ZOOM_LEVEL = 53;
+
+    private double translateX = 0;
+    private double translateY = 0;
+    private int zoomLevel = 0;
+    private double scale = 1.0;
+
+    public double toWorldX(double screenX) { return (screenX - translateX) / scale; }
+    public double toWorldY(double screenY) { return (screenY - translateY) / scale; }
+    public double toScreenX(double worldX) { return worldX * scale + translateX; }
+    public double toScreenY(double worldY) { return worldY * scale + translateY; }
+
+    /**
+     * Convertit un rectangle du monde en rectangle écran
+     */
+    public Rectangle2D toScreen(Rectangle2D world) {
+        return new Rectangle2D(toScreenX(world.getMinX()), toScreenY(world.getMinY()),
+                world.getWidth() * scale, world.getHeight() * scale);
+    }
+
+    /**
+     * Convertit un rectangle écran en rectangle du monde
+     */
+    public Rectangle2D toWorld(Rectangle2D screen) {
+        return new Rectangle2D(toWorldX(screen.getMinX()), toWorldY(screen.getMinY()),
+                screen.getWidth() / scale, screen.getHeight() / scale);
+    }
+
+    /**
+     * Partie du monde visible dans un canvas de la taille donnée
+     */
+    public Rectangle2D getVisibleWorld(double screenWidth, double screenHeight) {
+        return toWorld(new Rectangle2D(0, 0, screenWidth, screenHeight));
+    }
+
+    /**
+     * Déplace la vue d'un décalage en pixels écran
+     */
+    public void pan(double dx, double dy) {
+        translateX = Math.round(translateX + dx);
+        translateY = Math.round(translateY + dy);
+    }
+
+    /**
+     * Zoome en gardant fixe le point du monde situé sous le pointeur
+     * Le facteur est arrondi au niveau de zoom le plus proche (au moins un niveau)
+     */
+    public void zoomAt(double screenX, double screenY, double factor) {
+        int target = (int) Math.round(Math.log(scale * factor) / Math.log(2) * ZOOM_STEPS_PER_OCTAVE);
+        if (target == zoomLevel && factor != 1.0) {
+            target += factor > 1.0 ? 1 : -1;
+        }
+        target = Math.max(MIN_ZOOM_LEVEL, Math.min(MAX_ZOOM_LEVEL, target));
+        if (target == zoomLevel) return;
+
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        zoomLevel = target;
+        scale = scaleForLevel(target);
+        translateX = Math.round(screenX - worldX * scale);
+        translateY = Math.round(screenY - worldY * scale);
+    }
+
+    public static double scaleForLevel(int level) {
+        return Math.pow(2, (double) level / ZOOM_STEPS_PER_OCTAVE);
+    }
+
+    public void reset() {
+        translateX = 0;
+        translateY = 0;
+        zoomLevel = 0;
+        scale = 1.0;
+    }
+
+    /**
+     * Applique la transformation monde → écran au contexte graphique
+     */
+    public void apply(GraphicsContext gc) {
+        gc.setTransform(scale, 0, 0, scale, translateX, translateY);
+    }
+
+    public double getTranslateX() { return translateX; }
+    public double getTranslateY() { return translateY; }
+    public double getScale() { return scale; }
+    public int getZoomLevel() { return zoomLevel; }
+}